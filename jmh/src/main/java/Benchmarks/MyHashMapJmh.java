@@ -0,0 +1,93 @@
+package Benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * JMH version of MyHashMapBenchmark: put / get / mixed (90% get, 10% put) on MyHashMap next to java.util.HashMap.
+ * Every (map, size) combination runs in its own forked JVM, so one map's JIT profile does not skew the other.
+ * Neither map is thread safe, so the state is per thread.
+ * Run with: java -jar jmh/target/benchmarks.jar MyHashMapJmh
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class MyHashMapJmh {
+
+    @Param({"MyHashMap", "HashMap"})
+    String map;
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    Supplier<MyHashMapBenchmark.MapUnderTest> factory;
+    //keys are boxed up front so the measurement is the map, not Integer.valueOf
+    Integer[] keys;
+    MyHashMapBenchmark.MapUnderTest filled;
+    MyHashMapBenchmark.MapUnderTest growing;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        factory = map.equals("MyHashMap") ? MyHashMapBenchmark::myHashMap : MyHashMapBenchmark::javaHashMap;
+        Random random = new Random(42);
+        keys = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = random.nextInt();
+        }
+        filled = factory.get();
+        for (Integer key : keys) {
+            filled.put(key, key);
+        }
+        growing = factory.get();
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = index + 1 == size ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public Object put() {
+        int index = nextIndex();
+        //start over with an empty map after every full pass, so puts keep inserting and resizing
+        if (index == 0) {
+            growing = factory.get();
+        }
+        growing.put(keys[index], keys[index]);
+        return growing;
+    }
+
+    @Benchmark
+    public Integer get() {
+        return filled.get(keys[nextIndex()]);
+    }
+
+    @Benchmark
+    public Integer mixed() {
+        int index = nextIndex();
+        if (index % 10 == 0) {
+            filled.put(keys[index], index);
+            return null;
+        }
+        return filled.get(keys[index]);
+    }
+}
@@ -0,0 +1,113 @@
+package Benchmarks;
+
+import LowLevelDesign.DesignSplitwise.BalanceSheetController;
+import LowLevelDesign.DesignSplitwise.Ledger;
+import LowLevelDesign.DesignSplitwise.Expense.Expense;
+import LowLevelDesign.DesignSplitwise.Expense.ExpenseController;
+import LowLevelDesign.DesignSplitwise.Expense.ExpenseSplitType;
+import LowLevelDesign.DesignSplitwise.Expense.Split.Split;
+import LowLevelDesign.DesignSplitwise.User.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JMH version of SplitwiseBenchmark: every operation records one equal split expense among SPLIT_SIZE of "size" users.
+ * All threads write to one shared Ledger and the same users, so with -t above 1 the numbers include contention
+ * on the ledger stripes, as in production.
+ * Run with: java -jar jmh/target/benchmarks.jar SplitwiseJmh -t 4
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SplitwiseJmh {
+
+    private static final int SPLIT_SIZE = 4;
+    private static final int PREPARED_EXPENSES = 1 << 12;
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+
+        @Param({"100", "10000"})
+        int size;
+
+        ExpenseController expenseController;
+        BalanceSheetController balanceSheetController;
+        User[] users;
+        final AtomicInteger threadSeeds = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            Ledger ledger = new Ledger();
+            expenseController = new ExpenseController(ledger);
+            balanceSheetController = new BalanceSheetController(ledger);
+            users = new User[size];
+            for (int u = 0; u < size; u++) {
+                users[u] = new User("U" + u, "User" + u);
+            }
+        }
+    }
+
+    //pre-built split lists, so the measurement is the balance update and not list building;
+    //the Split objects are per thread because createExpense fills in their cents
+    @State(Scope.Thread)
+    public static class PerThread {
+
+        List<List<Split>> splits;
+        User[] payers;
+        String idPrefix;
+        long next;
+
+        @Setup(Level.Trial)
+        public void setUp(Shared shared) {
+            int seed = shared.threadSeeds.getAndIncrement();
+            Random random = new Random(seed);
+            splits = new ArrayList<>(PREPARED_EXPENSES);
+            payers = new User[PREPARED_EXPENSES];
+            for (int e = 0; e < PREPARED_EXPENSES; e++) {
+                List<Split> expenseSplits = new ArrayList<>();
+                for (int s = 0; s < SPLIT_SIZE; s++) {
+                    Split split = new Split(shared.users[random.nextInt(shared.size)], 250);
+                    split.setAmountOweCents(25_000);
+                    expenseSplits.add(split);
+                }
+                splits.add(expenseSplits);
+                payers[e] = expenseSplits.get(0).getUser();
+            }
+            idPrefix = "T" + seed + "-E";
+        }
+    }
+
+    @Benchmark
+    public User updateUserExpenseBalanceSheet(Shared shared, PerThread thread) {
+        int e = (int) (thread.next++ & (PREPARED_EXPENSES - 1));
+        User paidBy = thread.payers[e];
+        shared.balanceSheetController.updateUserExpenseBalanceSheet(paidBy, thread.splits.get(e), 100_000);
+        return paidBy;
+    }
+
+    @Benchmark
+    public Expense createExpense(Shared shared, PerThread thread) {
+        long iteration = thread.next++;
+        int e = (int) (iteration & (PREPARED_EXPENSES - 1));
+        return shared.expenseController.createExpense(thread.idPrefix + iteration, "benchmark", 1000,
+                thread.splits.get(e), ExpenseSplitType.EQUAL, thread.payers[e]);
+    }
+}
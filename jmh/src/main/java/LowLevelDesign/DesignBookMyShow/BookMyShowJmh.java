@@ -0,0 +1,113 @@
+package LowLevelDesign.DesignBookMyShow;
+
+import LowLevelDesign.DesignBookMyShow.Enums.City;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JMH version of BookMyShowBenchmark:
+ *  - TheatreController.getAllShow over a city with "size" theatres (shared, read only)
+ *  - BookMyShow.bookSeat on a show with "size" seats (one show per thread, reset when it is full)
+ * Lives in this package because the controllers are package private.
+ * Run with: java -jar jmh/target/benchmarks.jar BookMyShowJmh -t 4
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BookMyShowJmh {
+
+    private static final int MOVIE_COUNT = 20;
+    private static final int SHOWS_PER_THEATRE = 4;
+
+    @State(Scope.Benchmark)
+    public static class Catalog {
+
+        @Param({"100", "1000", "10000"})
+        int size;
+
+        TheatreController theatreController;
+        List<Movie> movies;
+        BookMyShow bookMyShow;
+        Movie movie;
+        final AtomicInteger showIds = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            movies = BookMyShowBenchmark.createMovies();
+            theatreController = new TheatreController();
+            int showId = 0;
+            for (int t = 0; t < size; t++) {
+                Theatre theatre = new Theatre();
+                theatre.setTheatreId(t);
+                theatre.setCity(City.Bangalore);
+                theatre.setScreen(List.of(BookMyShowBenchmark.createScreen(100)));
+                List<Show> shows = new ArrayList<>();
+                for (int s = 0; s < SHOWS_PER_THEATRE; s++) {
+                    Movie showMovie = movies.get((t * SHOWS_PER_THEATRE + s) % MOVIE_COUNT);
+                    shows.add(BookMyShowBenchmark.createShow(showId++, theatre.getScreen().get(0), showMovie, 8 + 4 * s));
+                }
+                theatre.setShows(shows);
+                theatreController.addTheatre(theatre, City.Bangalore);
+            }
+            theatreController.awaitCatalog();
+            bookMyShow = new BookMyShow();
+            movie = movies.get(0);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OwnShow {
+
+        Show show;
+        int seatCount;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(Catalog catalog) {
+            seatCount = catalog.size;
+            show = BookMyShowBenchmark.createShow(catalog.showIds.getAndIncrement(),
+                    BookMyShowBenchmark.createScreen(seatCount), catalog.movie, 20);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class MovieCursor {
+
+        int next;
+    }
+
+    @Benchmark
+    public Map<Theatre, List<Show>> getAllShow(Catalog catalog, MovieCursor cursor) {
+        int movie = cursor.next;
+        cursor.next = movie + 1 == MOVIE_COUNT ? 0 : movie + 1;
+        return catalog.theatreController.getAllShow(catalog.movies.get(movie), City.Bangalore);
+    }
+
+    @Benchmark
+    public Booking bookSeat(Catalog catalog, OwnShow own) {
+        int seat = own.next;
+        own.next = seat + 1 == own.seatCount ? 0 : seat + 1;
+        if (seat == 0) {
+            own.show.getSeatBitmap().clearAll();
+        }
+        return catalog.bookMyShow.bookSeat(own.show, seat);
+    }
+}
@@ -0,0 +1,17 @@
+package Benchmarks;
+
+/**
+ * One benchmarked operation. BenchmarkRunner creates a fresh instance per (size, threads) combination,
+ * calls setUp once, then calls operation in a tight loop from every measurement thread.
+ * State that is not thread safe should be kept per threadIndex.
+ */
+public interface Benchmark {
+
+    void setUp(int size, int threads) throws Exception;
+
+    //one unit of work; the result is consumed by the runner so the JIT cannot drop the call
+    Object operation(int threadIndex, long iteration);
+
+    default void tearDown() throws Exception {
+    }
+}
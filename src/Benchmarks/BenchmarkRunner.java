@@ -0,0 +1,238 @@
+package Benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+/**
+ * Small JMH style harness: warmup and measurement iterations of a fixed duration,
+ * parameterized by data size and thread count, throughput results printed as a table and written as JSON.
+ * It is the dependency free fallback of the JMH benchmarks in the jmh module (mvn -B package,
+ * then java -jar jmh/target/benchmarks.jar), use those for numbers that are compared.
+ * Everything here runs in one JVM without forking: benchmarks after the first share its JIT profile,
+ * e.g. a call site that was monomorphic for MyHashMap turns megamorphic once HashMap runs, so later results are skewed.
+ * Use filter= to run one benchmark per JVM when that matters.
+ *
+ * Arguments (all optional, key=value):
+ *   sizes=1000,100000  threads=1,4  warmup=3  iterations=5  time=1000 (ms per iteration)
+ *   filter=substring   out=results.json
+ */
+public class BenchmarkRunner {
+
+    final int[] sizes;
+    final int[] threadCounts;
+    final int warmupIterations;
+    final int measurementIterations;
+    final long iterationMillis;
+    final String filter;
+    final Path output;
+
+    final List<Result> results = new ArrayList<>();
+
+    //written by the measurement threads so their results are observably used
+    volatile int sink;
+
+    public BenchmarkRunner(int[] sizes, int[] threadCounts, int warmupIterations, int measurementIterations,
+                           long iterationMillis, String filter, Path output) {
+        this.sizes = sizes;
+        this.threadCounts = threadCounts;
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationMillis = iterationMillis;
+        this.filter = filter;
+        this.output = output;
+    }
+
+    public static BenchmarkRunner fromArgs(String[] args, int[] defaultSizes, int[] defaultThreads, String defaultOutput) {
+        int[] sizes = defaultSizes;
+        int[] threads = defaultThreads;
+        int warmup = 3;
+        int iterations = 5;
+        long time = 1000;
+        String filter = "";
+        String out = defaultOutput;
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected key=value but got " + arg);
+            }
+            String key = arg.substring(0, separator);
+            String value = arg.substring(separator + 1);
+            switch (key) {
+                case "sizes":
+                    sizes = parseInts(value);
+                    break;
+                case "threads":
+                    threads = parseInts(value);
+                    break;
+                case "warmup":
+                    warmup = Integer.parseInt(value);
+                    break;
+                case "iterations":
+                    iterations = Integer.parseInt(value);
+                    break;
+                case "time":
+                    time = Long.parseLong(value);
+                    break;
+                case "filter":
+                    filter = value;
+                    break;
+                case "out":
+                    out = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument " + key);
+            }
+        }
+        return new BenchmarkRunner(sizes, threads, warmup, iterations, time, filter, Path.of(out));
+    }
+
+    static final class Result {
+        final String benchmark;
+        final int size;
+        final int threads;
+        final double[] opsPerSecond;
+
+        Result(String benchmark, int size, int threads, double[] opsPerSecond) {
+            this.benchmark = benchmark;
+            this.size = size;
+            this.threads = threads;
+            this.opsPerSecond = opsPerSecond;
+        }
+
+        double mean() {
+            return Arrays.stream(opsPerSecond).average().orElse(0);
+        }
+
+        //half width of a ~99.9% interval, same spirit as the JMH score error
+        double error() {
+            int n = opsPerSecond.length;
+            if (n < 2) {
+                return Double.NaN;
+            }
+            double mean = mean();
+            double variance = 0;
+            for (double value : opsPerSecond) {
+                variance += (value - mean) * (value - mean);
+            }
+            variance /= (n - 1);
+            return 3.29 * Math.sqrt(variance / n);
+        }
+    }
+
+    //runs the benchmark for every size and thread count combination
+    public void run(String name, Supplier<Benchmark> factory) throws Exception {
+        if (!name.contains(filter)) {
+            return;
+        }
+        for (int size : sizes) {
+            for (int threads : threadCounts) {
+                Benchmark benchmark = factory.get();
+                benchmark.setUp(size, threads);
+                try {
+                    for (int i = 0; i < warmupIterations; i++) {
+                        measure(benchmark, threads);
+                    }
+                    double[] scores = new double[measurementIterations];
+                    for (int i = 0; i < measurementIterations; i++) {
+                        scores[i] = measure(benchmark, threads);
+                    }
+                    Result result = new Result(name, size, threads, scores);
+                    results.add(result);
+                    System.out.printf(Locale.ROOT, "%-40s size=%-9d threads=%-3d %,18.0f ops/s  +- %,.0f%n",
+                            name, size, threads, result.mean(), result.error());
+                } finally {
+                    benchmark.tearDown();
+                }
+            }
+        }
+    }
+
+    private double measure(Benchmark benchmark, int threads) throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        long[] operations = new long[threads];
+        long[] deadline = new long[1];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int threadIndex = t;
+            workers[t] = new Thread(() -> {
+                ready.countDown();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long stopAt = deadline[0];
+                long count = 0;
+                int local = 0;
+                //check the clock every 256 operations so nanoTime does not dominate tiny operations
+                do {
+                    for (int i = 0; i < 256; i++) {
+                        Object result = benchmark.operation(threadIndex, count++);
+                        if (result != null) {
+                            local += result.hashCode();
+                        }
+                    }
+                } while (System.nanoTime() < stopAt);
+                operations[threadIndex] = count;
+                sink += local;
+            });
+            workers[t].start();
+        }
+        ready.await();
+        long begin = System.nanoTime();
+        deadline[0] = begin + iterationMillis * 1_000_000L;
+        start.countDown();
+        long total = 0;
+        for (int t = 0; t < threads; t++) {
+            workers[t].join();
+            total += operations[t];
+        }
+        long elapsed = System.nanoTime() - begin;
+        return total * 1_000_000_000.0 / elapsed;
+    }
+
+    //machine readable output in the shape of JMH's -rf json
+    public void writeJson() throws IOException {
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < results.size(); i++) {
+            Result result = results.get(i);
+            json.append("  {\n")
+                    .append("    \"benchmark\": \"").append(result.benchmark).append("\",\n")
+                    .append("    \"mode\": \"thrpt\",\n")
+                    .append("    \"threads\": ").append(result.threads).append(",\n")
+                    .append("    \"warmupIterations\": ").append(warmupIterations).append(",\n")
+                    .append("    \"measurementIterations\": ").append(measurementIterations).append(",\n")
+                    .append("    \"measurementTimeMillis\": ").append(iterationMillis).append(",\n")
+                    .append("    \"params\": { \"size\": \"").append(result.size).append("\" },\n")
+                    .append("    \"primaryMetric\": {\n")
+                    .append("      \"score\": ").append(number(result.mean())).append(",\n")
+                    .append("      \"scoreError\": ").append(number(result.error())).append(",\n")
+                    .append("      \"scoreUnit\": \"ops/s\",\n")
+                    .append("      \"rawData\": [ ");
+            for (int j = 0; j < result.opsPerSecond.length; j++) {
+                json.append(j == 0 ? "" : ", ").append(number(result.opsPerSecond[j]));
+            }
+            json.append(" ]\n    }\n  }").append(i + 1 < results.size() ? ",\n" : "\n");
+        }
+        json.append("]\n");
+        Files.writeString(output, json);
+        System.out.println("results written to " + output.toAbsolutePath());
+    }
+
+    private static String number(double value) {
+        return Double.isNaN(value) ? "\"NaN\"" : String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static int[] parseInts(String csv) {
+        return Arrays.stream(csv.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+}
@@ -0,0 +1,154 @@
+package Benchmarks;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histogram in the style of HdrHistogram, with 2 significant digits.
+ * Values 0..255 have a bucket each; above that every power of two is split in 128 buckets,
+ * so any recorded value is known to within 1/128 (0.8%) and the whole long range fits in 7296 counters.
+ * Recording is thread safe and lock free, one counter increment per value.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_COUNT = SUB_BUCKET_COUNT >>> 1;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (Long.SIZE - 1 - SUB_BUCKET_BITS) * HALF_COUNT;
+
+    final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    final AtomicLong totalCount = new AtomicLong();
+    final AtomicLong totalValue = new AtomicLong();
+    final AtomicLong maxValue = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value " + value);
+        }
+        counts.incrementAndGet(indexOf(value));
+        totalCount.incrementAndGet();
+        totalValue.addAndGet(value);
+        long max = maxValue.get();
+        while (value > max && !maxValue.compareAndSet(max, value)) {
+            max = maxValue.get();
+        }
+    }
+
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        totalCount.addAndGet(other.totalCount.get());
+        totalValue.addAndGet(other.totalValue.get());
+        long max = maxValue.get();
+        long otherMax = other.maxValue.get();
+        while (otherMax > max && !maxValue.compareAndSet(max, otherMax)) {
+            max = maxValue.get();
+        }
+    }
+
+    public long count() {
+        return totalCount.get();
+    }
+
+    public long max() {
+        return maxValue.get();
+    }
+
+    public double mean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalValue.get() / count;
+    }
+
+    //from the bucket midpoints, so within bucket precision
+    public double stdDeviation() {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        double mean = mean();
+        double squares = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long bucket = counts.get(i);
+            if (bucket != 0) {
+                double middle = (lowestValueAt(i) + highestValueAt(i)) / 2.0 - mean;
+                squares += middle * middle * bucket;
+            }
+        }
+        return Math.sqrt(squares / count);
+    }
+
+    //smallest value that at least percentile % of the recorded values do not exceed, up to bucket precision
+    public long valueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueAt(i), maxValue.get());
+            }
+        }
+        return maxValue.get();
+    }
+
+    /**
+     * Percentile distribution in HdrHistogram's text format (.hgrm), which its plotting tools read.
+     * Values are divided by scale, e.g. 1000 to print nanoseconds as microseconds.
+     */
+    public void outputPercentileDistribution(PrintStream out, double scale) {
+        out.println("       Value     Percentile TotalCount 1/(1-Percentile)");
+        out.println();
+        long count = totalCount.get();
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT && seen < count; i++) {
+            long bucket = counts.get(i);
+            if (bucket == 0) {
+                continue;
+            }
+            seen += bucket;
+            double fraction = (double) seen / count;
+            String inverse = fraction < 1 ? String.format(Locale.ROOT, "%.2f", 1 / (1 - fraction)) : "";
+            out.printf(Locale.ROOT, "%12.3f %2.12f %10d %14s%n",
+                    Math.min(highestValueAt(i), maxValue.get()) / scale, fraction, seen, inverse);
+        }
+        out.printf(Locale.ROOT, "#[Mean    = %12.3f, StdDeviation   = %12.3f]%n", mean() / scale, stdDeviation() / scale);
+        out.printf(Locale.ROOT, "#[Max     = %12.3f, Total count    = %12d]%n", max() / scale, count);
+        out.printf(Locale.ROOT, "#[Buckets = %12d, SubBuckets     = %12d]%n", BUCKET_COUNT, SUB_BUCKET_COUNT);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        //shift leaves the top 8 bits of value, so value >>> shift is in 128..255
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKET_COUNT + (shift - 1) * HALF_COUNT + (int) (value >>> shift) - HALF_COUNT;
+    }
+
+    static long lowestValueAt(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / HALF_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % HALF_COUNT + HALF_COUNT;
+        return subBucket << shift;
+    }
+
+    static long highestValueAt(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / HALF_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % HALF_COUNT + HALF_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
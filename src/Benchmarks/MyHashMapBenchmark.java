@@ -0,0 +1,132 @@
+package Benchmarks;
+
+import LowLevelDesign.DesignDataStructures.MyHashMap;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * put / get / mixed (90% get, 10% put) workloads on MyHashMap next to java.util.HashMap.
+ * Neither map is thread safe, so every measurement thread works on its own map.
+ * Run with: java Benchmarks.MyHashMapBenchmark [sizes=..] [threads=..] [out=..]
+ */
+public class MyHashMapBenchmark {
+
+    //the two maps behind one shape so every workload is written once
+    interface MapUnderTest {
+        void put(Integer key, Integer value);
+
+        Integer get(Integer key);
+    }
+
+    static MapUnderTest myHashMap() {
+        MyHashMap<Integer, Integer> map = new MyHashMap<>();
+        return new MapUnderTest() {
+            @Override
+            public void put(Integer key, Integer value) {
+                map.put(key, value);
+            }
+
+            @Override
+            public Integer get(Integer key) {
+                return map.get(key);
+            }
+        };
+    }
+
+    static MapUnderTest javaHashMap() {
+        HashMap<Integer, Integer> map = new HashMap<>();
+        return new MapUnderTest() {
+            @Override
+            public void put(Integer key, Integer value) {
+                map.put(key, value);
+            }
+
+            @Override
+            public Integer get(Integer key) {
+                return map.get(key);
+            }
+        };
+    }
+
+    enum Workload {
+        PUT, GET, MIXED
+    }
+
+    static final class MapBenchmark implements Benchmark {
+
+        final Supplier<MapUnderTest> factory;
+        final Workload workload;
+
+        int size;
+        Integer[] keys;
+        MapUnderTest[] maps;
+
+        MapBenchmark(Supplier<MapUnderTest> factory, Workload workload) {
+            this.factory = factory;
+            this.workload = workload;
+        }
+
+        @Override
+        public void setUp(int size, int threads) {
+            this.size = size;
+            //keys are boxed up front so the measurement is the map, not Integer.valueOf
+            Random random = new Random(42);
+            keys = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = random.nextInt();
+            }
+            maps = new MapUnderTest[threads];
+            for (int t = 0; t < threads; t++) {
+                maps[t] = filledMap();
+            }
+        }
+
+        private MapUnderTest filledMap() {
+            MapUnderTest map = factory.get();
+            if (workload != Workload.PUT) {
+                for (Integer key : keys) {
+                    map.put(key, key);
+                }
+            }
+            return map;
+        }
+
+        @Override
+        public Object operation(int threadIndex, long iteration) {
+            int index = (int) (iteration % size);
+            Integer key = keys[index];
+            switch (workload) {
+                case PUT:
+                    //start over with an empty map after every full pass, so puts keep inserting and resizing
+                    if (index == 0) {
+                        maps[threadIndex] = factory.get();
+                    }
+                    maps[threadIndex].put(key, key);
+                    return null;
+                case GET:
+                    return maps[threadIndex].get(key);
+                default:
+                    if (index % 10 == 0) {
+                        maps[threadIndex].put(key, index);
+                        return null;
+                    }
+                    return maps[threadIndex].get(key);
+            }
+        }
+    }
+
+    public static void main(String args[]) throws Exception {
+
+        BenchmarkRunner runner = BenchmarkRunner.fromArgs(args, new int[]{1_000, 100_000, 1_000_000}, new int[]{1},
+                "myhashmap-benchmark.json");
+
+        for (Workload workload : Workload.values()) {
+            String name = workload.name().toLowerCase();
+            runner.run("MyHashMap." + name, () -> new MapBenchmark(MyHashMapBenchmark::myHashMap, workload));
+            runner.run("HashMap." + name, () -> new MapBenchmark(MyHashMapBenchmark::javaHashMap, workload));
+        }
+        runner.writeJson();
+    }
+}
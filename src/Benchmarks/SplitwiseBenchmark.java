@@ -0,0 +1,90 @@
+package Benchmarks;
+
+import LowLevelDesign.DesignSplitwise.BalanceSheetController;
+import LowLevelDesign.DesignSplitwise.Ledger;
+import LowLevelDesign.DesignSplitwise.Expense.ExpenseController;
+import LowLevelDesign.DesignSplitwise.Expense.ExpenseSplitType;
+import LowLevelDesign.DesignSplitwise.Expense.Split.Split;
+import LowLevelDesign.DesignSplitwise.User.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Splitwise expense ingestion: every operation records one equal split expense among SPLIT_SIZE of "size" users.
+ * All measurement threads write to one shared Ledger and the same users, so the numbers include contention
+ * on the ledger stripes, as in production.
+ * Run with: java Benchmarks.SplitwiseBenchmark [sizes=..] [threads=..] [out=..]
+ */
+public class SplitwiseBenchmark {
+
+    private static final int SPLIT_SIZE = 4;
+    private static final int PREPARED_EXPENSES = 1 << 12;
+
+    static final class ExpenseIngestionBenchmark implements Benchmark {
+
+        final boolean throughController;
+
+        ExpenseController expenseController;
+        BalanceSheetController balanceSheetController;
+        //pre-built split lists per thread, so the measurement is the balance update and not list building;
+        //the Split objects are per thread because createExpense fills in their cents
+        List<List<List<Split>>> splits;
+        User[][] payers;
+
+        ExpenseIngestionBenchmark(boolean throughController) {
+            this.throughController = throughController;
+        }
+
+        @Override
+        public void setUp(int size, int threads) {
+            Ledger ledger = new Ledger();
+            expenseController = new ExpenseController(ledger);
+            balanceSheetController = new BalanceSheetController(ledger);
+            User[] users = new User[size];
+            for (int u = 0; u < size; u++) {
+                users[u] = new User("U" + u, "User" + u);
+            }
+            splits = new ArrayList<>();
+            payers = new User[threads][PREPARED_EXPENSES];
+            for (int t = 0; t < threads; t++) {
+                Random random = new Random(t);
+                List<List<Split>> threadSplits = new ArrayList<>();
+                for (int e = 0; e < PREPARED_EXPENSES; e++) {
+                    List<Split> expenseSplits = new ArrayList<>();
+                    for (int s = 0; s < SPLIT_SIZE; s++) {
+                        Split split = new Split(users[random.nextInt(size)], 250);
+                        split.setAmountOweCents(25_000);
+                        expenseSplits.add(split);
+                    }
+                    threadSplits.add(expenseSplits);
+                    payers[t][e] = expenseSplits.get(0).getUser();
+                }
+                splits.add(threadSplits);
+            }
+        }
+
+        @Override
+        public Object operation(int threadIndex, long iteration) {
+            int e = (int) (iteration & (PREPARED_EXPENSES - 1));
+            List<Split> expenseSplits = splits.get(threadIndex).get(e);
+            User paidBy = payers[threadIndex][e];
+            if (throughController) {
+                return expenseController.createExpense("E" + iteration, "benchmark", 1000,
+                        expenseSplits, ExpenseSplitType.EQUAL, paidBy);
+            }
+            balanceSheetController.updateUserExpenseBalanceSheet(paidBy, expenseSplits, 100_000);
+            return paidBy;
+        }
+    }
+
+    public static void main(String args[]) throws Exception {
+
+        BenchmarkRunner runner = BenchmarkRunner.fromArgs(args, new int[]{100, 10_000}, new int[]{1, 4},
+                "splitwise-benchmark.json");
+        runner.run("BalanceSheetController.updateUserExpenseBalanceSheet", () -> new ExpenseIngestionBenchmark(false));
+        runner.run("ExpenseController.createExpense", () -> new ExpenseIngestionBenchmark(true));
+        runner.writeJson();
+    }
+}
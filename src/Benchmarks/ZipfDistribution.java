@@ -0,0 +1,48 @@
+package Benchmarks;
+
+import java.util.Random;
+
+/**
+ * Ranks 0..n-1 where rank k is drawn with probability proportional to 1 / (k + 1)^exponent,
+ * e.g. a few blockbuster shows getting most of the traffic. Exponent 0 is uniform, around 1 is typical for popularity.
+ * The cumulative probabilities are computed once, a sample is a binary search over them. Thread safe.
+ */
+public class ZipfDistribution {
+
+    final double[] cumulative;
+
+    public ZipfDistribution(int n, double exponent) {
+        if (n <= 0 || exponent < 0) {
+            throw new IllegalArgumentException("Illegal zipf n=" + n + " exponent=" + exponent);
+        }
+        cumulative = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= sum;
+        }
+    }
+
+    public int sample(Random random) {
+        double u = random.nextDouble();
+        int lo = 0;
+        int hi = cumulative.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cumulative[mid] <= u) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    //share of the samples that land on rank
+    public double probability(int rank) {
+        return rank == 0 ? cumulative[0] : cumulative[rank] - cumulative[rank - 1];
+    }
+}
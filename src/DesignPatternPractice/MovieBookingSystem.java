@@ -2,8 +2,6 @@ package DesignPatternPractice;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 enum SeatCategory {
     SILVER,
@@ -26,6 +24,8 @@ record User1(String userId, String name) {
 class Seat {
     SeatCategory seatCategory;
     private int seatId;
+    // shared by every show on the screen, so it cannot say which show holds the seat;
+    // MovieBookingSystemProcessor.showSeatBookings does
     private boolean isBooked;
 
     public Seat() {
@@ -58,7 +58,6 @@ class Seat {
 
 // Screen Class
 class Screen {
-    private final Lock lock = new ReentrantLock();
     private int screenId;
     private List<Seat> seats;
 
@@ -80,10 +79,6 @@ class Screen {
     public void setSeats(List<Seat> seats) {
         this.seats = seats;
     }
-
-    public Lock getLock() {
-        return lock;
-    }
 }
 
 // Movie Class
@@ -194,20 +189,69 @@ class Theatre {
 
 class TheatreController {
     Map<String, List<Theatre>> cityTheatreMap;
+    // lookup indexes kept up to date by addTheatre, names and timings are case-folded
+    // city -> movie -> first theatre added there that runs the movie
+    Map<String, Map<String, Theatre>> cityMovieTheatreMap;
+    // theatre -> (movie, timing) -> show
+    Map<Theatre, Map<ShowKey, Show>> theatreShowMap;
+    // theatre -> seatId -> seat, the first screen having the seat id wins
+    Map<Theatre, Map<Integer, Seat>> theatreSeatMap;
+
+    record ShowKey(String movieName, String timing) {
+    }
 
     public TheatreController() {
         cityTheatreMap = new HashMap<>();
+        cityMovieTheatreMap = new ConcurrentHashMap<>();
+        theatreShowMap = new ConcurrentHashMap<>();
+        theatreSeatMap = new ConcurrentHashMap<>();
     }
 
-    public void addTheatre(String city, Theatre theatre) {
+    public synchronized void addTheatre(String city, Theatre theatre) {
         List<Theatre>arr=cityTheatreMap.getOrDefault(city,new ArrayList<>());
         arr.add(theatre);
         cityTheatreMap.put(city,arr);
+
+        Map<String, Theatre> movieTheatres = cityMovieTheatreMap.computeIfAbsent(normalize(city),
+                c -> new ConcurrentHashMap<>());
+        Map<ShowKey, Show> shows = new ConcurrentHashMap<>();
+        for (Show show : theatre.getShows()) {
+            String movieName = normalize(show.getMovie().getMovieName());
+            movieTheatres.putIfAbsent(movieName, theatre);
+            shows.putIfAbsent(new ShowKey(movieName, normalize(show.getTiming())), show);
+        }
+        theatreShowMap.put(theatre, shows);
+        Map<Integer, Seat> seats = new ConcurrentHashMap<>();
+        for (Screen screen : theatre.getScreens()) {
+            for (Seat seat : screen.getSeats()) {
+                seats.putIfAbsent(seat.getSeatId(), seat);
+            }
+        }
+        theatreSeatMap.put(theatre, seats);
     }
 
     public List<Theatre> getAllTheatre(String city) {
         return cityTheatreMap.getOrDefault(city, new ArrayList<>());
     }
+
+    public Theatre findTheatre(String city, String movieName) {
+        Map<String, Theatre> movieTheatres = cityMovieTheatreMap.get(normalize(city));
+        return movieTheatres == null ? null : movieTheatres.get(normalize(movieName));
+    }
+
+    public Show findShow(Theatre theatre, String movieName, String timing) {
+        Map<ShowKey, Show> shows = theatreShowMap.get(theatre);
+        return shows == null ? null : shows.get(new ShowKey(normalize(movieName), normalize(timing)));
+    }
+
+    public Seat findSeat(Theatre theatre, int seatId) {
+        Map<Integer, Seat> seats = theatreSeatMap.get(theatre);
+        return seats == null ? null : seats.get(seatId);
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
 }
 
 
@@ -225,6 +269,8 @@ class Payment1 {
 // MovieBookingSystem Class
 class MovieBookingSystemProcessor {
     private final Map<String, Booking> bookings = new ConcurrentHashMap<>();
+    // showId -> seatId -> booking, a seat is claimed with one putIfAbsent, no lock and no scan over past bookings
+    private final Map<Integer, Map<Integer, Booking>> showSeatBookings = new ConcurrentHashMap<>();
     private final TheatreController theatreController;
 
     public MovieBookingSystemProcessor(TheatreController theatreController) {
@@ -249,57 +295,44 @@ class MovieBookingSystemProcessor {
         }
         String bookingId = UUID.randomUUID().toString();
         Booking booking = new Booking(bookingId, show, seat, user);
-        seat.setBooked(true);
+        // the check above is only a fast path, the claim decides
+        if (!claimSeat(booking)) {
+            throw new RuntimeException("Seat " + seatId + " already booked for show " + show.getShowId());
+        }
         bookings.put(bookingId, booking);
         return booking;
     }
 
     private Theatre findTheatre(String cityName, String movieName) {
-        for (Theatre theatre : theatreController.getAllTheatre(cityName)) {
-            for (Show show : theatre.getShows()) {
-                if (show.getMovie().getMovieName().equalsIgnoreCase(movieName)) {
-                    return theatre;
-                }
-            }
-        }
-        return null;
+        return theatreController.findTheatre(cityName, movieName);
     }
 
-
     private Show findShow(Theatre theatre, String movieName, String time) {
-        for (Show show : theatre.getShows()) {
-            if (show.getTiming().equals(time) && show.getMovie().getMovieName().equalsIgnoreCase(movieName)) {
-                return show;
-            }
-        }
-        return null;
+        return theatreController.findShow(theatre, movieName, time);
     }
 
     private Seat findSeat(Theatre theatre, int seatId) {
-        for (Screen screen : theatre.getScreens()) {
-            for (Seat seat : screen.getSeats()) {
-                if (seat.getSeatId() == seatId) {
-                    return seat;
-                }
-            }
-        }
-        return null;
+        return theatreController.findSeat(theatre, seatId);
+    }
+
+    // of two buyers racing for the same seat of the same show exactly one gets it
+    private boolean claimSeat(Booking booking) {
+        Map<Integer, Booking> seatBookings = showSeatBookings.computeIfAbsent(booking.show().getShowId(),
+                showId -> new ConcurrentHashMap<>());
+        return seatBookings.putIfAbsent(booking.seat().getSeatId(), booking) == null;
     }
 
     private boolean isSeatAlreadyBooked(Show show, Seat seat) {
-        for (Booking booking : bookings.values()) {
-            if (booking.show().equals(show) && booking.seat().equals(seat)) {
-                return true;
-            }
-        }
-        return false;
+        Map<Integer, Booking> seatBookings = showSeatBookings.get(show.getShowId());
+        return seatBookings != null && seatBookings.containsKey(seat.getSeatId());
     }
 
     public boolean cancelTicket(String bookingId) {
-        Booking booking = bookings.get(bookingId);
+        Booking booking = bookings.remove(bookingId);
         if (booking != null) {
-            booking.seat().setBooked(false);
-            bookings.remove(bookingId);
+            Map<Integer, Booking> seatBookings = showSeatBookings.get(booking.show().getShowId());
+            // only frees the seat if it is still this booking's
+            seatBookings.remove(booking.seat().getSeatId(), booking);
             return true;
         }
         return false;
@@ -338,7 +371,7 @@ class MovieBookingSystem {
         show1.setMovie(createMovie("a"));
         show1.setTiming("8:00 AM");
         Show show2 = new Show();
-        show2.setShowId(1001);
+        show2.setShowId(1002);
         show2.setMovie(createMovie("b"));
         show2.setTiming("12:00 AM");
         return List.of(show1, show2);
@@ -0,0 +1,153 @@
+package LowLevelDesign.DesignBookMyShow;
+
+import LowLevelDesign.DesignBookMyShow.Enums.BookingStatus;
+import LowLevelDesign.DesignBookMyShow.Enums.SeatCategory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Books many items across many shows in one call, e.g. a corporate booking for a whole week of shows.
+ * Every show belongs to one shard, a single thread, so all work on a show runs one item after the other
+ * and never contends on its seats, while different shows are booked in parallel. There is one shard per core by default.
+ * Items are independent: each gets its own result, a failed item does not undo the others.
+ * Do not call it from a shard thread, it waits for the shards.
+ */
+public class BatchBookingService implements AutoCloseable {
+
+    final BookingEngine bookingEngine;
+    final ExecutorService[] shards;
+
+    public BatchBookingService(BookingEngine bookingEngine) {
+        this(bookingEngine, Runtime.getRuntime().availableProcessors());
+    }
+
+    public BatchBookingService(BookingEngine bookingEngine, int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount must be positive");
+        }
+        this.bookingEngine = bookingEngine;
+        this.shards = new ExecutorService[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            String name = "booking-shard-" + i;
+            shards[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    //results are in the order of the requests
+    public List<BookingResult> bookAll(List<BookingRequest> requests) {
+        return bookAllAsync(requests).join();
+    }
+
+    public CompletableFuture<List<BookingResult>> bookAllAsync(List<BookingRequest> requests) {
+
+        //positions of the requests of every shard, in request order
+        List<List<Integer>> positionsByShard = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            positionsByShard.add(new ArrayList<>());
+        }
+        BookingResult[] results = new BookingResult[requests.size()];
+        for (int position = 0; position < requests.size(); position++) {
+            BookingRequest request = requests.get(position);
+            if (request == null || request.getShow() == null) {
+                //no shard to run it on, it fails on its own like any other invalid item
+                results[position] = new BookingResult(request, BookingStatus.FAILED, null,
+                        new IllegalArgumentException("Booking request without a show"));
+                continue;
+            }
+            positionsByShard.get(shardOf(request.getShow())).add(position);
+        }
+
+        List<CompletableFuture<Void>> running = new ArrayList<>();
+        for (int shard = 0; shard < shards.length; shard++) {
+            List<Integer> positions = positionsByShard.get(shard);
+            if (positions.isEmpty()) {
+                continue;
+            }
+            //every task writes its own slots of results, join makes them visible to the caller
+            running.add(CompletableFuture.runAsync(() -> {
+                for (int position : positions) {
+                    results[position] = bookOne(requests.get(position));
+                }
+            }, shards[shard]));
+        }
+        return CompletableFuture.allOf(running.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> Arrays.asList(results));
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public void close() {
+        for (ExecutorService shard : shards) {
+            shard.shutdown();
+        }
+    }
+
+    int shardOf(Show show) {
+        return Math.floorMod(show.getShowId(), shards.length);
+    }
+
+    private BookingResult bookOne(BookingRequest request) {
+        try {
+            Booking booking = request.seatIds != null
+                    ? bookingEngine.book(request.show, request.seatIds)
+                    : bookingEngine.bookBestAvailable(request.show, request.seatCategory, request.seatCount);
+            return booking != null
+                    ? new BookingResult(request, BookingStatus.BOOKED, booking, null)
+                    : new BookingResult(request, BookingStatus.SEATS_UNAVAILABLE, null, null);
+        } catch (RuntimeException e) {
+            return new BookingResult(request, BookingStatus.FAILED, null, e);
+        }
+    }
+
+
+    public static void main(String args[]) {
+
+        //a company books 2 GOLD seats together for 40 employees in each of 200 shows
+        Screen screen = new Screen();
+        List<Seat> seats = new ArrayList<>();
+        SeatCategory[] categories = {SeatCategory.SILVER, SeatCategory.GOLD, SeatCategory.PLATINUM};
+        for (int i = 0; i < 300; i++) {
+            Seat seat = new Seat();
+            seat.setSeatId(i);
+            seat.setRow(i / 20);
+            seat.setSeatCategory(categories[i / 100]);
+            seats.add(seat);
+        }
+        screen.setSeats(seats);
+        List<BookingRequest> requests = new ArrayList<>();
+        for (int showId = 1; showId <= 200; showId++) {
+            Show show = new Show();
+            show.setShowId(showId);
+            show.setScreen(screen);
+            for (int employee = 0; employee < 40; employee++) {
+                requests.add(new BookingRequest(show, SeatCategory.GOLD, 2));
+            }
+        }
+
+        try (BatchBookingService service = new BatchBookingService(new BookingEngine())) {
+            long start = System.nanoTime();
+            List<BookingResult> results = service.bookAll(requests);
+            long micros = (System.nanoTime() - start) / 1000;
+            int[] byStatus = new int[BookingStatus.values().length];
+            for (BookingResult result : results) {
+                byStatus[result.getStatus().ordinal()]++;
+            }
+            //100 GOLD seats per show fit 50 pairs at most, so all 40 pairs of every show get seats
+            System.out.println(requests.size() + " requests on " + service.shardCount() + " shards in " + micros + " us, booked: "
+                    + byStatus[BookingStatus.BOOKED.ordinal()] + ", unavailable: " + byStatus[BookingStatus.SEATS_UNAVAILABLE.ordinal()]
+                    + ", failed: " + byStatus[BookingStatus.FAILED.ordinal()]);
+        }
+    }
+}
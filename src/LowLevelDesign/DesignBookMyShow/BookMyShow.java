@@ -4,17 +4,23 @@ import LowLevelDesign.DesignBookMyShow.Enums.City;
 import LowLevelDesign.DesignBookMyShow.Enums.SeatCategory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
 public class BookMyShow {
 
+    //how long seats stay held while the user pays
+    static final long SEAT_HOLD_MILLIS = 10 * 60 * 1000;
+
     MovieController movieController;
     TheatreController theatreController;
+    BookingEngine bookingEngine;
 
     BookMyShow() {
         movieController = new MovieController();
         theatreController = new TheatreController();
+        bookingEngine = new BookingEngine();
     }
 
 
@@ -25,66 +31,69 @@ public class BookMyShow {
         bookMyShow.initialize();
 
         //user1
-        bookMyShow.createBooking(City.Bangalore, "BAAHUBALI");
+        bookMyShow.createBooking(City.Bangalore, "BAAHUBALI", SeatCategory.GOLD, 4);
         //user2
-        bookMyShow.createBooking(City.Bangalore, "BAAHUBALI");
+        bookMyShow.createBooking(City.Bangalore, "BAAHUBALI", SeatCategory.GOLD, 4);
 
     }
 
-    private void createBooking(City userCity, String movieName) {
+    private void createBooking(City userCity, String movieName, SeatCategory seatCategory, int seatCount) {
 
 
         //1. search movie by my location
-        List<Movie> movies = movieController.getMoviesByCity(userCity);
-
         //2. select the movie which you want to see. i want to see Baahubali
-        Movie interestedMovie = null;
-        for (Movie movie : movies) {
-
-            if ((movie.getMovieName()).equals(movieName)) {
-                interestedMovie = movie;
-            }
+        Movie interestedMovie = movieController.getMovieByName(userCity, movieName);
+        if(interestedMovie == null) {
+            System.out.println("movie not running in your city");
+            return;
         }
 
         //3. get all show of this movie in Bangalore location
         Map<Theatre, List<Show>> showsTheatreWise = theatreController.getAllShow(interestedMovie, userCity);
 
         //4. select the particular show user is interested in
+        if(showsTheatreWise.isEmpty()) {
+            System.out.println("no show of this movie in your city");
+            return;
+        }
         Map.Entry<Theatre,List<Show>> entry = showsTheatreWise.entrySet().iterator().next();
         List<Show> runningShows = entry.getValue();
         Show interestedShow = runningShows.get(0);
 
-        //5. select the seat
-        int seatNumber = 30;
-        List<Integer> bookedSeats = interestedShow.getBookedSeatIds();
-        if(!bookedSeats.contains(seatNumber)){
-            bookedSeats.add(seatNumber);
-            //startPayment
-            Booking booking = new Booking();
-            List<Seat> myBookedSeats = new ArrayList<>();
-            for(Seat screenSeat : interestedShow.getScreen().getSeats()) {
-                if(screenSeat.getSeatId() == seatNumber) {
-                    myBookedSeats.add(screenSeat);
-                }
-            }
-            booking.setBookedSeats(myBookedSeats);
-            booking.setShow(interestedShow);
-        } else {
+        //5. select the seats, the best block of seats next to each other in the category
+        SeatHold hold = bookingEngine.holdBestAvailable(interestedShow, seatCategory, seatCount, SEAT_HOLD_MILLIS);
+        if(hold == null) {
             //throw exception
-            System.out.println("seat already booked, try again");
+            System.out.println("no " + seatCount + " " + seatCategory + " seats together, try again");
             return;
         }
 
-        System.out.println("BOOKING SUCCESSFUL");
+        //6. pay within the hold time
+        //startPayment
+        Payment payment = new Payment();
+        Booking booking = bookingEngine.confirm(hold, payment);
+        if(booking == null) {
+            System.out.println("seat hold expired, try again");
+            return;
+        }
+
+        System.out.println("BOOKING SUCCESSFUL, seats: " + Arrays.toString(hold.getSeatIds()));
+    }
+
+    //returns null when the seat is already taken
+    Booking bookSeat(Show show, int seatNumber) {
+        return bookingEngine.book(show, seatNumber);
     }
 
     private void initialize() {
 
         //create movies
         createMovies();
+        movieController.awaitCatalog();
 
         //create theater with screens, seats and shows
         createTheatre();
+        theatreController.awaitCatalog();
     }
 
     //creating 2 theatre
@@ -146,12 +155,14 @@ public class BookMyShow {
     private List<Seat> createSeats() {
 
         //creating 100 seats for testing purpose, this can be generalised
+        //10 seats per row, row 0 is the one closest to the screen
         List<Seat> seats = new ArrayList<>();
 
         //1 to 40 : SILVER
         for (int i = 0; i < 40; i++) {
             Seat seat = new Seat();
             seat.setSeatId(i);
+            seat.setRow(i / 10);
             seat.setSeatCategory(SeatCategory.SILVER);
             seats.add(seat);
         }
@@ -160,6 +171,7 @@ public class BookMyShow {
         for (int i = 40; i < 70; i++) {
             Seat seat = new Seat();
             seat.setSeatId(i);
+            seat.setRow(i / 10);
             seat.setSeatCategory(SeatCategory.GOLD);
             seats.add(seat);
         }
@@ -168,6 +180,7 @@ public class BookMyShow {
         for (int i = 70; i < 100; i++) {
             Seat seat = new Seat();
             seat.setSeatId(i);
+            seat.setRow(i / 10);
             seat.setSeatCategory(SeatCategory.PLATINUM);
             seats.add(seat);
         }
@@ -0,0 +1,125 @@
+package LowLevelDesign.DesignBookMyShow;
+
+import Benchmarks.Benchmark;
+import Benchmarks.BenchmarkRunner;
+import LowLevelDesign.DesignBookMyShow.Enums.City;
+import LowLevelDesign.DesignBookMyShow.Enums.SeatCategory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hot paths of the booking flow:
+ *  - TheatreController.getAllShow over a city with "size" theatres (shared, read only)
+ *  - BookMyShow.bookSeat on a show with "size" seats (one show per measurement thread, reset when it is full)
+ * Lives in this package because the controllers are package private.
+ * Run with: java LowLevelDesign.DesignBookMyShow.BookMyShowBenchmark [sizes=..] [threads=..] [out=..]
+ */
+public class BookMyShowBenchmark {
+
+    private static final int MOVIE_COUNT = 20;
+    private static final int SHOWS_PER_THEATRE = 4;
+
+    static final class GetAllShowBenchmark implements Benchmark {
+
+        TheatreController theatreController;
+        List<Movie> movies;
+
+        @Override
+        public void setUp(int size, int threads) {
+            movies = createMovies();
+            theatreController = new TheatreController();
+            int showId = 0;
+            for (int t = 0; t < size; t++) {
+                Theatre theatre = new Theatre();
+                theatre.setTheatreId(t);
+                theatre.setCity(City.Bangalore);
+                theatre.setScreen(List.of(createScreen(100)));
+                List<Show> shows = new ArrayList<>();
+                for (int s = 0; s < SHOWS_PER_THEATRE; s++) {
+                    Movie movie = movies.get((t * SHOWS_PER_THEATRE + s) % MOVIE_COUNT);
+                    shows.add(createShow(showId++, theatre.getScreen().get(0), movie, 8 + 4 * s));
+                }
+                theatre.setShows(shows);
+                theatreController.addTheatre(theatre, City.Bangalore);
+            }
+            theatreController.awaitCatalog();
+        }
+
+        @Override
+        public Object operation(int threadIndex, long iteration) {
+            return theatreController.getAllShow(movies.get((int) (iteration % MOVIE_COUNT)), City.Bangalore);
+        }
+    }
+
+    static final class BookSeatBenchmark implements Benchmark {
+
+        BookMyShow bookMyShow;
+        Show[] shows;
+        int seatCount;
+
+        @Override
+        public void setUp(int size, int threads) {
+            seatCount = size;
+            bookMyShow = new BookMyShow();
+            Movie movie = createMovies().get(0);
+            shows = new Show[threads];
+            for (int t = 0; t < threads; t++) {
+                shows[t] = createShow(t, createScreen(size), movie, 20);
+            }
+        }
+
+        @Override
+        public Object operation(int threadIndex, long iteration) {
+            int seat = (int) (iteration % seatCount);
+            Show show = shows[threadIndex];
+            if (seat == 0) {
+                show.getSeatBitmap().clearAll();
+            }
+            return bookMyShow.bookSeat(show, seat);
+        }
+    }
+
+    static List<Movie> createMovies() {
+        List<Movie> movies = new ArrayList<>();
+        for (int m = 0; m < MOVIE_COUNT; m++) {
+            Movie movie = new Movie();
+            movie.setMovieId(m);
+            movie.setMovieName("MOVIE-" + m);
+            movie.setMovieDuration(120);
+            movies.add(movie);
+        }
+        return movies;
+    }
+
+    static Screen createScreen(int seatCount) {
+        Screen screen = new Screen();
+        List<Seat> seats = new ArrayList<>();
+        for (int i = 0; i < seatCount; i++) {
+            Seat seat = new Seat();
+            seat.setSeatId(i);
+            seat.setSeatCategory(SeatCategory.values()[i * SeatCategory.values().length / seatCount]);
+            seats.add(seat);
+        }
+        screen.setSeats(seats);
+        return screen;
+    }
+
+    static Show createShow(int showId, Screen screen, Movie movie, int startTime) {
+        Show show = new Show();
+        show.setShowId(showId);
+        show.setScreen(screen);
+        show.setMovie(movie);
+        show.setShowStartTime(startTime);
+        return show;
+    }
+
+    public static void main(String args[]) throws Exception {
+
+        BenchmarkRunner runner = BenchmarkRunner.fromArgs(args, new int[]{100, 1_000, 10_000}, new int[]{1, 4},
+                "bookmyshow-benchmark.json");
+        runner.run("TheatreController.getAllShow", GetAllShowBenchmark::new);
+        runner.run("BookMyShow.bookSeat", BookSeatBenchmark::new);
+        runner.writeJson();
+    }
+}
@@ -0,0 +1,178 @@
+package LowLevelDesign.DesignBookMyShow;
+
+import LowLevelDesign.DesignBookMyShow.Enums.BookingEventType;
+import LowLevelDesign.DesignBookMyShow.Enums.SeatCategory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Books seats of a show without any lock.
+ * The seats are claimed on the show's SeatBitmap with compare-and-set, all of them or none,
+ * so buyers racing for the same seats never both get them and buyers of different seats never wait on each other.
+ * Seats paid for later are held first; a hold that is not confirmed in time gives its seats back on its own.
+ * When the SeatHoldManager has a BookingJournal, bookings and cancellations are logged there too.
+ */
+public class BookingEngine {
+
+    final SeatHoldManager seatHoldManager;
+
+    public BookingEngine() {
+        this(new SeatHoldManager());
+    }
+
+    public BookingEngine(SeatHoldManager seatHoldManager) {
+        this.seatHoldManager = seatHoldManager;
+    }
+
+    //returns null when any of the seats is already taken
+    public Booking book(Show show, int... seatIds) {
+
+        if (seatIds.length == 0) {
+            return null;
+        }
+        BookingJournal journal = seatHoldManager.journal;
+        if (journal == null) {
+            if (!show.getSeatBitmap().claimAll(seatIds)) {
+                return null;
+            }
+        } else {
+            long lsn = journal.claimThenAppend(BookingEventType.BOOKED, show.getShowId(), 0, 0, seatIds,
+                    () -> show.getSeatBitmap().claimAll(seatIds));
+            if (lsn < 0) {
+                return null;
+            }
+            journal.awaitDurable(lsn);
+        }
+        //startPayment
+        Booking booking = new Booking();
+        List<Seat> bookedSeats = new ArrayList<>(seatIds.length);
+        for (int seatId : seatIds) {
+            bookedSeats.add(show.getScreen().getSeat(seatId));
+        }
+        booking.setBookedSeats(bookedSeats);
+        booking.setShow(show);
+        return booking;
+    }
+
+    //books the best block of count seats next to each other, null when no such block is free
+    public Booking bookBestAvailable(Show show, SeatCategory category, int count) {
+        Booking[] booking = new Booking[1];
+        show.getSeatAllocator().allocate(category, count, seatIds -> (booking[0] = book(show, seatIds)) != null);
+        return booking[0];
+    }
+
+    //keeps the seats aside for ttlMillis while the payment runs, null when any of them is taken
+    public SeatHold hold(Show show, long ttlMillis, int... seatIds) {
+        seatHoldManager.start();
+        return seatHoldManager.hold(show, ttlMillis, seatIds);
+    }
+
+    //holds the best block of count seats next to each other, null when no such block is free
+    public SeatHold holdBestAvailable(Show show, SeatCategory category, int count, long ttlMillis) {
+        seatHoldManager.start();
+        SeatHold[] hold = new SeatHold[1];
+        show.getSeatAllocator().allocate(category, count,
+                seatIds -> (hold[0] = seatHoldManager.hold(show, ttlMillis, seatIds)) != null);
+        return hold[0];
+    }
+
+    //books the held seats, null when the hold has expired or was released
+    public Booking confirm(SeatHold hold, Payment payment) {
+
+        if (!seatHoldManager.confirm(hold, payment.paymentId)) {
+            return null;
+        }
+        Booking booking = new Booking();
+        List<Seat> bookedSeats = new ArrayList<>(hold.seatIds.length);
+        for (int seatId : hold.seatIds) {
+            bookedSeats.add(hold.show.getScreen().getSeat(seatId));
+        }
+        booking.setBookedSeats(bookedSeats);
+        booking.setShow(hold.show);
+        booking.setPayment(payment);
+        return booking;
+    }
+
+    public boolean release(SeatHold hold) {
+        return seatHoldManager.release(hold);
+    }
+
+    //gives the seats of a booking back, e.g. when its payment failed
+    public void cancel(Booking booking) {
+
+        List<Seat> seats = booking.getBookedSeats();
+        int[] seatIds = new int[seats.size()];
+        for (int i = 0; i < seatIds.length; i++) {
+            seatIds[i] = seats.get(i).getSeatId();
+        }
+        Show show = booking.getShow();
+        BookingJournal journal = seatHoldManager.journal;
+        if (journal == null) {
+            show.getSeatBitmap().releaseAll(seatIds);
+        } else {
+            journal.appendThenApply(BookingEventType.CANCELLED, show.getShowId(), 0, 0, seatIds,
+                    () -> show.getSeatBitmap().releaseAll(seatIds));
+        }
+        show.seatsReleased(seatIds);
+    }
+
+
+    public static void main(String args[]) throws InterruptedException {
+
+        //one blockbuster show with 2000 seats, 4000 buyers each want 1 to 4 seats next to each other
+        List<Seat> seats = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Seat seat = new Seat();
+            seat.setSeatId(i);
+            seat.setSeatCategory(SeatCategory.SILVER);
+            seats.add(seat);
+        }
+        Screen screen = new Screen();
+        screen.setScreenId(1);
+        screen.setSeats(seats);
+        Show show = new Show();
+        show.setShowId(1);
+        show.setScreen(screen);
+
+        BookingEngine engine = new BookingEngine();
+        int buyers = 4000;
+        AtomicInteger seatsSold = new AtomicInteger();
+        AtomicInteger bookings = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int b = 0; b < buyers; b++) {
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int count = 1 + random.nextInt(4);
+                int first = random.nextInt(2000 - count + 1);
+                int[] wanted = new int[count];
+                for (int i = 0; i < count; i++) {
+                    wanted[i] = first + i;
+                }
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (engine.book(show, wanted) != null) {
+                    bookings.incrementAndGet();
+                    seatsSold.addAndGet(count);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        //every sold seat is set exactly once in the bitmap, so the two counts agree
+        System.out.println("bookings: " + bookings.get() + ", seats sold: " + seatsSold.get()
+                + ", seats booked in bitmap: " + show.getSeatBitmap().bookedCount());
+    }
+}
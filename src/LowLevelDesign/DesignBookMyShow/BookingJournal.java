@@ -0,0 +1,721 @@
+package LowLevelDesign.DesignBookMyShow;
+
+import LowLevelDesign.DesignBookMyShow.Enums.BookingEventType;
+import LowLevelDesign.DesignBookMyShow.Enums.SeatCategory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.zip.CRC32;
+
+/**
+ * Append only log of booking events, so bookings survive a restart.
+ * Records are binary, [length][crc][type][time][showId][holdId][paymentId][seat count][seat ids], and are written
+ * by one writer thread: appenders only copy their record into a memory buffer, the writer takes whatever piled up
+ * and writes it with one FileChannel.write (group commit), then fsyncs it, either after every batch
+ * or at most once per fsyncIntervalMillis. A position in the log (lsn) is durable once awaitDurable returns for it.
+ *
+ * Every snapshotEveryBytes of log, the seat bitmaps of all shows are written to a snapshot file together with the
+ * log position they reflect, the log moves on to a new segment file and the older segments are deleted,
+ * so a restart loads the snapshot and replays only the tail written after it.
+ * Seats still held when the process stopped are given back on recovery, their payment cannot complete any more.
+ *
+ * Order matters for replay: seats are claimed in the bitmap and then logged through claimThenAppend,
+ * while releases are logged first and then applied, through appendThenApply. Both hold the read lock of applyLock
+ * for the two steps and the snapshot takes the write lock, so a snapshot never holds a claim or release
+ * whose record comes after its lsn.
+ */
+public class BookingJournal implements AutoCloseable {
+
+    //fsyncIntervalMillis values
+    public static final long FSYNC_EVERY_BATCH = 0;
+    public static final long NEVER_FSYNC = -1;
+
+    static final int HEADER_BYTES = 2 * Integer.BYTES;
+    static final int FIXED_BODY_BYTES = 1 + Long.BYTES + Integer.BYTES + 2 * Long.BYTES + Integer.BYTES;
+    static final int MAX_BUFFER_BYTES = 8 << 20;
+    static final int SNAPSHOT_MAGIC = 0x424D5353;
+    static final String SNAPSHOT_FILE = "snapshot.bin";
+    static final int REPLAY_BUFFER_BYTES = 1 << 20;
+
+    final Path directory;
+    final Map<Integer, Show> showsById;
+    final long fsyncIntervalMillis;
+    final long snapshotEveryBytes;
+
+    //appenders fill pending, the writer swaps it with spare; guarded by lock
+    final ReentrantLock lock = new ReentrantLock();
+    final Condition writerWakeup = lock.newCondition();
+    final Condition progress = lock.newCondition();
+    ByteBuffer pending = ByteBuffer.allocate(1 << 16);
+    ByteBuffer spare = ByteBuffer.allocate(1 << 16);
+    long appendedLsn;
+    long writtenLsn;
+    long durableLsn;
+    long snapshotLsn;
+    boolean closed;
+    IOException failure;
+    final CRC32 crc = new CRC32();
+
+    //held by the writer while it writes, and by snapshot while it switches segments
+    final ReentrantLock ioLock = new ReentrantLock();
+    FileChannel channel;
+    long lastSyncMillis;
+
+    //claims and releases hold the read lock until both bitmap and log have them, the snapshot takes the write lock
+    final ReentrantReadWriteLock applyLock = new ReentrantReadWriteLock();
+    final Object snapshotLock = new Object();
+
+    final Thread writer;
+    final Thread snapshotter;
+    final AtomicInteger snapshotsTaken = new AtomicInteger();
+
+    /**
+     * Opens the journal in directory, creating it if needed, and brings the seat bitmaps of showsById
+     * back to the state of the log before anything new is appended.
+     */
+    public static BookingJournal open(Path directory, Map<Integer, Show> showsById,
+                                      long fsyncIntervalMillis, long snapshotEveryBytes) throws IOException {
+        Files.createDirectories(directory);
+        BookingJournal journal = new BookingJournal(directory, showsById, fsyncIntervalMillis, snapshotEveryBytes);
+        journal.recover();
+        journal.writer.start();
+        journal.snapshotter.start();
+        return journal;
+    }
+
+    private BookingJournal(Path directory, Map<Integer, Show> showsById, long fsyncIntervalMillis, long snapshotEveryBytes) {
+        if (snapshotEveryBytes <= 0) {
+            throw new IllegalArgumentException("snapshotEveryBytes must be positive");
+        }
+        this.directory = directory;
+        this.showsById = showsById;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.snapshotEveryBytes = snapshotEveryBytes;
+        this.writer = new Thread(this::writeLoop, "booking-journal-writer");
+        this.writer.setDaemon(true);
+        this.snapshotter = new Thread(this::snapshotLoop, "booking-journal-snapshot");
+        this.snapshotter.setDaemon(true);
+    }
+
+    //logs an event whose seats are already claimed in the bitmap, returns its lsn; see claimThenAppend
+    public long append(BookingEventType type, int showId, long holdId, long paymentId, int[] seatIds) {
+        int length = FIXED_BODY_BYTES + seatIds.length * Integer.BYTES;
+        lock.lock();
+        try {
+            while (failure == null && !closed && pending.position() > 0
+                    && pending.remaining() < HEADER_BYTES + length && pending.capacity() >= MAX_BUFFER_BYTES) {
+                //the writer is behind, wait for it instead of buffering without limit
+                progress.awaitUninterruptibly();
+            }
+            checkWritable();
+            if (pending.remaining() < HEADER_BYTES + length) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + HEADER_BYTES + length));
+                pending.flip();
+                larger.put(pending);
+                pending = larger;
+            }
+            boolean wasEmpty = pending.position() == 0;
+            int start = pending.position();
+            pending.putInt(length);
+            pending.putInt(0);
+            pending.put((byte) type.ordinal());
+            pending.putLong(System.currentTimeMillis());
+            pending.putInt(showId);
+            pending.putLong(holdId);
+            pending.putLong(paymentId);
+            pending.putInt(seatIds.length);
+            for (int seatId : seatIds) {
+                pending.putInt(seatId);
+            }
+            crc.reset();
+            crc.update(pending.array(), start + HEADER_BYTES, length);
+            pending.putInt(start + Integer.BYTES, (int) crc.getValue());
+            appendedLsn += HEADER_BYTES + length;
+            if (wasEmpty) {
+                writerWakeup.signal();
+            }
+            return appendedLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //runs claim, which takes the seats in the bitmap, and logs the event if it worked; returns its lsn, or -1 when
+    //the claim failed. A snapshot never sees the claimed seats without the record
+    public long claimThenAppend(BookingEventType type, int showId, long holdId, long paymentId, int[] seatIds,
+                                BooleanSupplier claim) {
+        applyLock.readLock().lock();
+        try {
+            if (!claim.getAsBoolean()) {
+                return -1;
+            }
+            return append(type, showId, holdId, paymentId, seatIds);
+        } finally {
+            applyLock.readLock().unlock();
+        }
+    }
+
+    //logs a release and then runs apply, which gives the seats back; a snapshot never sees one without the other
+    public long appendThenApply(BookingEventType type, int showId, long holdId, long paymentId, int[] seatIds, Runnable apply) {
+        applyLock.readLock().lock();
+        try {
+            long lsn = append(type, showId, holdId, paymentId, seatIds);
+            apply.run();
+            return lsn;
+        } finally {
+            applyLock.readLock().unlock();
+        }
+    }
+
+    //blocks until everything up to lsn is on disk, as far as the fsync setting promises
+    public void awaitDurable(long lsn) {
+        lock.lock();
+        try {
+            while (durableLsn < lsn) {
+                if (failure != null) {
+                    throw new UncheckedIOException("BookingJournal write failed", failure);
+                }
+                if (closed && !writer.isAlive()) {
+                    throw new IllegalStateException("BookingJournal is closed");
+                }
+                progress.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long durableLsn() {
+        lock.lock();
+        try {
+            return durableLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int snapshotsTaken() {
+        return snapshotsTaken.get();
+    }
+
+    //writes and fsyncs what is pending, then stops the writer
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            writerWakeup.signal();
+            progress.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+            snapshotter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ioLock.lock();
+        try {
+            channel.force(false);
+            channel.close();
+        } finally {
+            ioLock.unlock();
+        }
+        lock.lock();
+        try {
+            progress.signalAll();
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the seat bitmaps of all shows and the lsn they reflect, then starts a new segment
+     * and deletes the segments the snapshot made unnecessary.
+     * Claims and releases run with their record under applyLock, so the bitmaps hold exactly the events logged
+     * before the lsn; the ones after it are replayed.
+     */
+    public void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            long lsn;
+            ByteBuffer image;
+            applyLock.writeLock().lock();
+            try {
+                lock.lock();
+                try {
+                    lsn = appendedLsn;
+                } finally {
+                    lock.unlock();
+                }
+                image = snapshotImage(lsn);
+            } finally {
+                applyLock.writeLock().unlock();
+            }
+
+            Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+            try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (image.hasRemaining()) {
+                    file.write(image);
+                }
+                file.force(true);
+            }
+            //a claim in the image whose record got lost would leave its seats taken forever
+            awaitDurable(lsn);
+            Files.move(temporary, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            ioLock.lock();
+            try {
+                channel.force(false);
+                channel.close();
+                long segmentStart;
+                lock.lock();
+                try {
+                    segmentStart = writtenLsn;
+                    snapshotLsn = lsn;
+                } finally {
+                    lock.unlock();
+                }
+                channel = openSegment(segmentStart);
+                List<Long> starts = segmentStarts();
+                for (int i = 0; i + 1 < starts.size(); i++) {
+                    if (starts.get(i + 1) <= lsn) {
+                        Files.deleteIfExists(segmentPath(starts.get(i)));
+                    }
+                }
+            } finally {
+                ioLock.unlock();
+            }
+            snapshotsTaken.incrementAndGet();
+        }
+    }
+
+    private ByteBuffer snapshotImage(long lsn) {
+        List<Show> shows = new ArrayList<>(showsById.values());
+        int bytes = Integer.BYTES + Long.BYTES + Integer.BYTES + Long.BYTES;
+        for (Show show : shows) {
+            bytes += 2 * Integer.BYTES + 2 * Long.BYTES * SeatBitmap.wordCount(show.getScreen().getSeatIdRange());
+        }
+        ByteBuffer image = ByteBuffer.allocate(bytes);
+        image.putInt(SNAPSHOT_MAGIC);
+        image.putLong(lsn);
+        image.putInt(shows.size());
+        for (Show show : shows) {
+            long[] booked = show.getSeatBitmap().toLongArray();
+            long[] held = show.getHeldSeats().toLongArray();
+            image.putInt(show.getShowId());
+            image.putInt(booked.length);
+            for (long word : booked) {
+                image.putLong(word);
+            }
+            for (long word : held) {
+                image.putLong(word);
+            }
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(image.array(), 0, image.position());
+        image.putLong(checksum.getValue());
+        image.flip();
+        return image;
+    }
+
+    private void writeLoop() {
+        while (true) {
+            ByteBuffer batch;
+            long batchEnd;
+            boolean stopping;
+            lock.lock();
+            try {
+                while (pending.position() == 0 && !closed && !syncOverdue()) {
+                    if (fsyncIntervalMillis > 0) {
+                        writerWakeup.await(fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+                    } else {
+                        writerWakeup.await();
+                    }
+                }
+                stopping = closed && pending.position() == 0;
+                batch = pending;
+                pending = spare;
+                spare = null;
+                batchEnd = appendedLsn;
+                //appenders waiting for buffer space can go on
+                progress.signalAll();
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            //writtenLsn moves while ioLock is still held, so a segment switch always starts at the next unwritten byte
+            ioLock.lock();
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                long now = System.currentTimeMillis();
+                boolean synced = fsyncIntervalMillis == FSYNC_EVERY_BATCH
+                        || (fsyncIntervalMillis > 0 && (stopping || now - lastSyncMillis >= fsyncIntervalMillis));
+                if (synced) {
+                    channel.force(false);
+                    lastSyncMillis = now;
+                }
+                lock.lock();
+                try {
+                    batch.clear();
+                    spare = batch;
+                    writtenLsn = batchEnd;
+                    if (synced || fsyncIntervalMillis == NEVER_FSYNC) {
+                        durableLsn = batchEnd;
+                    }
+                    progress.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            } catch (IOException e) {
+                fail(e);
+                return;
+            } finally {
+                ioLock.unlock();
+            }
+            if (stopping) {
+                return;
+            }
+        }
+    }
+
+    //takes a snapshot whenever snapshotEveryBytes of log were written since the last one
+    private void snapshotLoop() {
+        while (true) {
+            lock.lock();
+            try {
+                while (!closed && writtenLsn - snapshotLsn < snapshotEveryBytes) {
+                    progress.await();
+                }
+                if (closed) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                snapshot();
+            } catch (IOException e) {
+                fail(e);
+                return;
+            } catch (IllegalStateException e) {
+                //closed while waiting for the log to reach the snapshot
+                return;
+            }
+        }
+    }
+
+    //written but not yet fsynced data whose interval is up
+    private boolean syncOverdue() {
+        return fsyncIntervalMillis > 0 && durableLsn < writtenLsn
+                && System.currentTimeMillis() - lastSyncMillis >= fsyncIntervalMillis;
+    }
+
+    private void fail(IOException e) {
+        lock.lock();
+        try {
+            failure = e;
+            progress.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        long lsn = loadSnapshot();
+        snapshotLsn = lsn;
+        List<Long> starts = segmentStarts();
+        long end = lsn;
+        for (int i = 0; i < starts.size(); i++) {
+            long start = starts.get(i);
+            long next = i + 1 < starts.size() ? starts.get(i + 1) : Long.MAX_VALUE;
+            if (next <= lsn) {
+                continue;
+            }
+            long segmentEnd = replaySegment(start, Math.max(start, lsn));
+            end = Math.max(end, segmentEnd);
+            if (segmentEnd < next && next != Long.MAX_VALUE) {
+                //torn write inside this segment, nothing after it can be trusted
+                for (int j = i + 1; j < starts.size(); j++) {
+                    Files.deleteIfExists(segmentPath(starts.get(j)));
+                }
+                starts = starts.subList(0, i + 1);
+                break;
+            }
+        }
+        appendedLsn = writtenLsn = durableLsn = end;
+        if (starts.isEmpty() || starts.get(starts.size() - 1) > end) {
+            channel = openSegment(end);
+        } else {
+            long start = starts.get(starts.size() - 1);
+            channel = FileChannel.open(segmentPath(start), StandardOpenOption.WRITE);
+            //cut off a torn record at the end, new records go right after the last good one
+            channel.truncate(end - start);
+            channel.position(end - start);
+        }
+        lastSyncMillis = System.currentTimeMillis();
+
+        //holds open at the crash are given back, and that is logged so later replays agree
+        for (Show show : showsById.values()) {
+            long[] held = show.getHeldSeats().toLongArray();
+            List<Integer> seats = new ArrayList<>();
+            for (int w = 0; w < held.length; w++) {
+                for (long bits = held[w]; bits != 0; bits &= bits - 1) {
+                    seats.add(w * 64 + Long.numberOfTrailingZeros(bits));
+                }
+            }
+            if (!seats.isEmpty()) {
+                int[] seatIds = seats.stream().mapToInt(Integer::intValue).toArray();
+                append(BookingEventType.RELEASED, show.getShowId(), 0, 0, seatIds);
+                apply(BookingEventType.RELEASED, show, seatIds);
+            }
+        }
+    }
+
+    //returns the lsn the snapshot reflects, 0 without a snapshot
+    private long loadSnapshot() throws IOException {
+        Path path = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        ByteBuffer image = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (image.limit() < 24 || image.getInt(0) != SNAPSHOT_MAGIC) {
+            throw new IOException("Corrupt snapshot " + path);
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(image.array(), 0, image.limit() - Long.BYTES);
+        if (image.getLong(image.limit() - Long.BYTES) != checksum.getValue()) {
+            throw new IOException("Corrupt snapshot " + path);
+        }
+        image.getInt();
+        long lsn = image.getLong();
+        int showCount = image.getInt();
+        for (int i = 0; i < showCount; i++) {
+            int showId = image.getInt();
+            long[] booked = new long[image.getInt()];
+            long[] held = new long[booked.length];
+            for (int w = 0; w < booked.length; w++) {
+                booked[w] = image.getLong();
+            }
+            for (int w = 0; w < held.length; w++) {
+                held[w] = image.getLong();
+            }
+            Show show = showsById.get(showId);
+            if (show != null) {
+                show.getSeatBitmap().load(booked);
+                show.getHeldSeats().load(held);
+            }
+        }
+        return lsn;
+    }
+
+    //applies the records of a segment from lsn from on, returns the lsn right after the last good record.
+    //Records are streamed through one buffer, a segment can be any size (appends go on while a snapshot runs)
+    private long replaySegment(long start, long from) throws IOException {
+        try (FileChannel file = FileChannel.open(segmentPath(start), StandardOpenOption.READ)) {
+            long size = file.size();
+            ByteBuffer buffer = ByteBuffer.allocate(REPLAY_BUFFER_BYTES);
+            buffer.flip();
+            CRC32 checksum = new CRC32();
+            long offset = 0;
+            while (fill(file, buffer, HEADER_BYTES)) {
+                int length = buffer.getInt(buffer.position());
+                if (length < FIXED_BODY_BYTES || length > size - offset - HEADER_BYTES) {
+                    break;
+                }
+                if (buffer.capacity() < HEADER_BYTES + length) {
+                    ByteBuffer grown = ByteBuffer.allocate(HEADER_BYTES + length);
+                    grown.put(buffer);
+                    grown.flip();
+                    buffer = grown;
+                }
+                if (!fill(file, buffer, HEADER_BYTES + length)) {
+                    break;
+                }
+                int at = buffer.position();
+                checksum.reset();
+                checksum.update(buffer.array(), at + HEADER_BYTES, length);
+                if ((int) checksum.getValue() != buffer.getInt(at + Integer.BYTES)) {
+                    break;
+                }
+                if (start + offset >= from) {
+                    replayRecord(buffer, at + HEADER_BYTES);
+                }
+                buffer.position(at + HEADER_BYTES + length);
+                offset += HEADER_BYTES + length;
+            }
+            return start + offset;
+        }
+    }
+
+    //makes at least needed bytes readable from the buffer position on, false when the file ends first
+    private static boolean fill(FileChannel file, ByteBuffer buffer, int needed) throws IOException {
+        if (buffer.remaining() >= needed) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < needed && file.read(buffer) >= 0) {
+            //keep reading, a read may return less than asked
+        }
+        buffer.flip();
+        return buffer.remaining() >= needed;
+    }
+
+    private void replayRecord(ByteBuffer buffer, int body) {
+        BookingEventType type = BookingEventType.values()[buffer.get(body)];
+        int showId = buffer.getInt(body + 1 + Long.BYTES);
+        int seatCount = buffer.getInt(body + FIXED_BODY_BYTES - Integer.BYTES);
+        int[] seatIds = new int[seatCount];
+        for (int i = 0; i < seatCount; i++) {
+            seatIds[i] = buffer.getInt(body + FIXED_BODY_BYTES + i * Integer.BYTES);
+        }
+        Show show = showsById.get(showId);
+        if (show != null) {
+            apply(type, show, seatIds);
+        }
+    }
+
+    private static void apply(BookingEventType type, Show show, int[] seatIds) {
+        switch (type) {
+            case BOOKED:
+                show.getSeatBitmap().markAll(seatIds);
+                break;
+            case HELD:
+                show.getSeatBitmap().markAll(seatIds);
+                show.getHeldSeats().markAll(seatIds);
+                break;
+            case PAID:
+                show.getHeldSeats().releaseAll(seatIds);
+                break;
+            case RELEASED:
+            case CANCELLED:
+                show.getHeldSeats().releaseAll(seatIds);
+                show.getSeatBitmap().releaseAll(seatIds);
+                break;
+        }
+    }
+
+    private FileChannel openSegment(long start) throws IOException {
+        return FileChannel.open(segmentPath(start), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    private Path segmentPath(long start) {
+        return directory.resolve(String.format("journal-%020d.log", start));
+    }
+
+    private List<Long> segmentStarts() throws IOException {
+        List<Long> starts = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "journal-*.log")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                starts.add(Long.parseLong(name.substring("journal-".length(), name.length() - ".log".length())));
+            }
+        }
+        Collections.sort(starts);
+        return starts;
+    }
+
+    private void checkWritable() {
+        if (failure != null) {
+            throw new UncheckedIOException("BookingJournal write failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("BookingJournal is closed");
+        }
+    }
+
+    public static void main(String args[]) throws Exception {
+
+        Path directory = Files.createTempDirectory("booking-journal");
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        Map<Integer, Show> shows = createShows(100, 2000);
+
+        //every seat of 100 shows booked one at a time, each booking waits until it is durable
+        long start = System.nanoTime();
+        int bookings;
+        try (BookingJournal journal = open(directory, shows, FSYNC_EVERY_BATCH, 4 << 20)) {
+            BookingEngine engine = new BookingEngine(new SeatHoldManager(100, System::currentTimeMillis, journal));
+            AtomicInteger next = new AtomicInteger();
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread worker = new Thread(() -> {
+                    for (int i = next.getAndIncrement(); i < 100 * 2000; i = next.getAndIncrement()) {
+                        engine.book(shows.get(1 + i % 100), i / 100);
+                    }
+                });
+                worker.start();
+                workers.add(worker);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            bookings = next.get() - threads;
+            System.out.println("snapshots taken: " + journal.snapshotsTaken());
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d durable bookings in %.2f s, %.0f per second, %d threads%n", bookings, seconds, bookings / seconds, threads);
+
+        //a fresh process: same shows, empty bitmaps, state comes back from the snapshot and the journal tail
+        Map<Integer, Show> restored = createShows(100, 2000);
+        try (BookingJournal journal = open(directory, restored, FSYNC_EVERY_BATCH, 4 << 20)) {
+            int booked = 0;
+            for (Show show : restored.values()) {
+                booked += show.getSeatBitmap().bookedCount();
+            }
+            System.out.println("booked seats after restart: " + booked + ", log position: " + journal.durableLsn());
+        }
+    }
+
+    private static Map<Integer, Show> createShows(int showCount, int seatCount) {
+        List<Seat> seats = new ArrayList<>();
+        for (int i = 0; i < seatCount; i++) {
+            Seat seat = new Seat();
+            seat.setSeatId(i);
+            seat.setRow(i / 20);
+            seat.setSeatCategory(SeatCategory.SILVER);
+            seats.add(seat);
+        }
+        Screen screen = new Screen();
+        screen.setSeats(seats);
+        Map<Integer, Show> shows = new HashMap<>();
+        for (int id = 1; id <= showCount; id++) {
+            Show show = new Show();
+            show.setShowId(id);
+            show.setScreen(screen);
+            shows.put(id, show);
+        }
+        return shows;
+    }
+}
@@ -0,0 +1,492 @@
+package LowLevelDesign.DesignBookMyShow;
+
+import Benchmarks.LatencyHistogram;
+import Benchmarks.ZipfDistribution;
+import LowLevelDesign.DesignBookMyShow.Enums.City;
+import LowLevelDesign.DesignBookMyShow.Enums.SeatCategory;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load generator for the booking flow of BookMyShow: many users, each looping search -> hold -> pay -> confirm.
+ * Show popularity and seat preference follow Zipf distributions, so a few shows and the seats in the middle of the hall
+ * get most of the traffic, the way an opening weekend does. Search, hold and confirm latencies go to LatencyHistograms;
+ * at the end it prints their percentiles, the throughput and how often a hold lost the race for its seats.
+ *
+ * Every user is a virtual thread when the JVM has them (Java 21 and later), otherwise users run on platform threads,
+ * at most platformThreads of them. Users are a closed loop with think time, so latencies are per call service times.
+ * Run with: java LowLevelDesign.DesignBookMyShow.BookingLoadGenerator [users=..] [duration=..] [showSkew=..] ..
+ */
+public class BookingLoadGenerator {
+
+    static final class Config {
+        int users = 2_000;
+        int platformThreads = 512;
+        long warmupMillis = 2_000;
+        long durationMillis = 10_000;
+        int theatres = 10;
+        int movies = 10;
+        int showsPerTheatre = 4;
+        int rows = 40;
+        int seatsPerRow = 50;
+        //zipf exponents, 0 is uniform
+        double showSkew = 1.0;
+        double seatSkew = 1.0;
+        int seatsPerBooking = 2;
+        //share of hold attempts that ask for the best block instead of picking seats
+        double bestAvailable = 0.3;
+        //further hold attempts after a conflict before the user gives up
+        int retries = 2;
+        long thinkMillis = 20;
+        long payMillis = 10;
+        long holdMillis = 5_000;
+        double paymentFailure = 0.05;
+        //share of bookings cancelled right away, keeps seats turning over so the hot shows do not sell out
+        //during the run; 0 for an on-sale rush
+        double cancel = 0.9;
+        //directory for percentile distributions in .hgrm format
+        String hgrm;
+
+        static Config fromArgs(String[] args) {
+            Config config = new Config();
+            for (String arg : args) {
+                int separator = arg.indexOf('=');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("Expected key=value but got " + arg);
+                }
+                String key = arg.substring(0, separator);
+                String value = arg.substring(separator + 1);
+                switch (key) {
+                    case "users":
+                        config.users = Integer.parseInt(value);
+                        break;
+                    case "platformThreads":
+                        config.platformThreads = Integer.parseInt(value);
+                        break;
+                    case "warmup":
+                        config.warmupMillis = Long.parseLong(value);
+                        break;
+                    case "duration":
+                        config.durationMillis = Long.parseLong(value);
+                        break;
+                    case "theatres":
+                        config.theatres = Integer.parseInt(value);
+                        break;
+                    case "movies":
+                        config.movies = Integer.parseInt(value);
+                        break;
+                    case "showsPerTheatre":
+                        config.showsPerTheatre = Integer.parseInt(value);
+                        break;
+                    case "rows":
+                        config.rows = Integer.parseInt(value);
+                        break;
+                    case "seatsPerRow":
+                        config.seatsPerRow = Integer.parseInt(value);
+                        break;
+                    case "showSkew":
+                        config.showSkew = Double.parseDouble(value);
+                        break;
+                    case "seatSkew":
+                        config.seatSkew = Double.parseDouble(value);
+                        break;
+                    case "seatsPerBooking":
+                        config.seatsPerBooking = Integer.parseInt(value);
+                        break;
+                    case "bestAvailable":
+                        config.bestAvailable = Double.parseDouble(value);
+                        break;
+                    case "retries":
+                        config.retries = Integer.parseInt(value);
+                        break;
+                    case "think":
+                        config.thinkMillis = Long.parseLong(value);
+                        break;
+                    case "pay":
+                        config.payMillis = Long.parseLong(value);
+                        break;
+                    case "hold":
+                        config.holdMillis = Long.parseLong(value);
+                        break;
+                    case "paymentFailure":
+                        config.paymentFailure = Double.parseDouble(value);
+                        break;
+                    case "cancel":
+                        config.cancel = Double.parseDouble(value);
+                        break;
+                    case "hgrm":
+                        config.hgrm = value;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown argument " + key);
+                }
+            }
+            if (config.seatsPerBooking <= 0 || config.seatsPerBooking > config.seatsPerRow) {
+                throw new IllegalArgumentException("seatsPerBooking must be between 1 and seatsPerRow");
+            }
+            return config;
+        }
+    }
+
+    final Config config;
+    final BookMyShow bookMyShow;
+    //popularity rank -> show
+    final List<Show> shows = new ArrayList<>();
+    final Map<Integer, Theatre> theatreByShowId = new HashMap<>();
+    //seat ids from the middle of the hall outwards, seat preference rank -> seat id
+    final int[] seatsByPreference;
+    final ZipfDistribution showPopularity;
+    final ZipfDistribution seatPreference;
+
+    final LatencyHistogram searchLatency = new LatencyHistogram();
+    final LatencyHistogram holdLatency = new LatencyHistogram();
+    final LatencyHistogram confirmLatency = new LatencyHistogram();
+    final AtomicLongArray searchesByRank;
+    final LongAdder holdAttempts = new LongAdder();
+    final LongAdder conflicts = new LongAdder();
+    final LongAdder soldOut = new LongAdder();
+    final LongAdder abandoned = new LongAdder();
+    final LongAdder paymentFailures = new LongAdder();
+    final LongAdder holdsLost = new LongAdder();
+    final LongAdder bookings = new LongAdder();
+    final LongAdder cancelled = new LongAdder();
+    final AtomicInteger paymentIds = new AtomicInteger();
+    //only calls made after the warmup are counted
+    volatile long measureFromNanos;
+    volatile long endNanos;
+
+    BookingLoadGenerator(Config config) {
+        this.config = config;
+        this.bookMyShow = new BookMyShow();
+        createCatalog();
+        this.seatsByPreference = seatsByPreference(config.rows, config.seatsPerRow);
+        this.showPopularity = new ZipfDistribution(shows.size(), config.showSkew);
+        this.seatPreference = new ZipfDistribution(seatsByPreference.length, config.seatSkew);
+        this.searchesByRank = new AtomicLongArray(shows.size());
+    }
+
+    private void createCatalog() {
+
+        List<Movie> movies = new ArrayList<>();
+        for (int m = 0; m < config.movies; m++) {
+            Movie movie = new Movie();
+            movie.setMovieId(m);
+            movie.setMovieName("MOVIE-" + m);
+            movie.setMovieDuration(120);
+            bookMyShow.movieController.addMovie(movie, City.Bangalore);
+            movies.add(movie);
+        }
+
+        int showId = 0;
+        for (int t = 0; t < config.theatres; t++) {
+            Theatre theatre = new Theatre();
+            theatre.setTheatreId(t);
+            theatre.setCity(City.Bangalore);
+            theatre.setScreen(List.of(createScreen(config.rows, config.seatsPerRow)));
+            List<Show> theatreShows = new ArrayList<>();
+            for (int s = 0; s < config.showsPerTheatre; s++) {
+                Movie movie = movies.get((t * config.showsPerTheatre + s) % movies.size());
+                Show show = BookMyShowBenchmark.createShow(showId++, theatre.getScreen().get(0), movie, 8 + 3 * s);
+                theatreShows.add(show);
+                theatreByShowId.put(show.getShowId(), theatre);
+            }
+            theatre.setShows(theatreShows);
+            bookMyShow.theatreController.addTheatre(theatre, City.Bangalore);
+            shows.addAll(theatreShows);
+        }
+        bookMyShow.movieController.awaitCatalog();
+        bookMyShow.theatreController.awaitCatalog();
+
+        //the hottest shows are spread over theatres and movies, same order on every run
+        Collections.shuffle(shows, new Random(42));
+    }
+
+    //seat id = row * seatsPerRow + position, front rows SILVER, middle rows GOLD, back rows PLATINUM
+    static Screen createScreen(int rows, int seatsPerRow) {
+        Screen screen = new Screen();
+        List<Seat> seats = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            for (int position = 0; position < seatsPerRow; position++) {
+                Seat seat = new Seat();
+                seat.setSeatId(row * seatsPerRow + position);
+                seat.setRow(row);
+                seat.setSeatCategory(SeatCategory.values()[row * SeatCategory.values().length / rows]);
+                seats.add(seat);
+            }
+        }
+        screen.setSeats(seats);
+        return screen;
+    }
+
+    //distance to the middle of the hall, the way a user looking at the seat map would rank the seats
+    static int[] seatsByPreference(int rows, int seatsPerRow) {
+        double centreRow = (rows - 1) / 2.0;
+        double centrePosition = (seatsPerRow - 1) / 2.0;
+        List<Integer> seatIds = new ArrayList<>();
+        for (int seatId = 0; seatId < rows * seatsPerRow; seatId++) {
+            seatIds.add(seatId);
+        }
+        seatIds.sort(Comparator.comparingDouble(seatId -> {
+            double rowDistance = seatId / seatsPerRow - centreRow;
+            double positionDistance = seatId % seatsPerRow - centrePosition;
+            return rowDistance * rowDistance + positionDistance * positionDistance;
+        }));
+        return seatIds.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    void run() throws Exception {
+
+        ExecutorService users = newVirtualThreadExecutor();
+        boolean virtual = users != null;
+        int userCount = virtual ? config.users : Math.min(config.users, config.platformThreads);
+        if (!virtual) {
+            users = Executors.newFixedThreadPool(userCount, runnable -> {
+                Thread thread = new Thread(runnable, "load-user");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        System.out.printf(Locale.ROOT, "%d users on %s, %d shows of %d seats, show skew %.2f, seat skew %.2f%n",
+                userCount, virtual ? "virtual threads" : "platform threads", shows.size(),
+                config.rows * config.seatsPerRow, config.showSkew, config.seatSkew);
+
+        measureFromNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.warmupMillis);
+        endNanos = measureFromNanos + TimeUnit.MILLISECONDS.toNanos(config.durationMillis);
+        for (int u = 0; u < userCount; u++) {
+            users.execute(this::runUser);
+        }
+
+        users.shutdown();
+        if (!users.awaitTermination(config.durationMillis + config.holdMillis + 60_000, TimeUnit.MILLISECONDS)) {
+            System.out.println("users still running after the deadline");
+        }
+        report(config.durationMillis / 1e3);
+        bookMyShow.bookingEngine.seatHoldManager.close();
+    }
+
+    //Executors.newVirtualThreadPerTaskExecutor, looked up so this still runs on JVMs without virtual threads
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private void runUser() {
+
+        BookingEngine engine = bookMyShow.bookingEngine;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+            while (System.nanoTime() < endNanos) {
+                pause(random, config.thinkMillis);
+
+                //1. search the movie of the show the user wants and pick the show from the results
+                int rank = showPopularity.sample(random);
+                Show wanted = shows.get(rank);
+                long start = System.nanoTime();
+                Show show = search(wanted);
+                if (record(searchLatency, start)) {
+                    searchesByRank.incrementAndGet(rank);
+                }
+                int[] seatIds = show == null ? null : pickSeats(show, random);
+                if (seatIds == null) {
+                    count(soldOut);
+                    continue;
+                }
+
+                //2. hold seats: the best block, or the ones picked on the seat map; picks again after a conflict
+                SeatHold hold = null;
+                for (int attempt = 0; attempt <= config.retries && seatIds != null; attempt++) {
+                    start = System.nanoTime();
+                    if (random.nextDouble() < config.bestAvailable) {
+                        SeatCategory category = show.getScreen().getSeat(seatIds[0]).getSeatCategory();
+                        hold = engine.holdBestAvailable(show, category, seatIds.length, config.holdMillis);
+                    } else {
+                        hold = engine.hold(show, config.holdMillis, seatIds);
+                    }
+                    record(holdLatency, start);
+                    count(holdAttempts);
+                    if (hold != null) {
+                        break;
+                    }
+                    count(conflicts);
+                    seatIds = pickSeats(show, random);
+                }
+                if (hold == null) {
+                    count(abandoned);
+                    continue;
+                }
+
+                //3. pay, then confirm the hold
+                pause(random, config.payMillis);
+                if (random.nextDouble() < config.paymentFailure) {
+                    engine.release(hold);
+                    count(paymentFailures);
+                    continue;
+                }
+                Payment payment = new Payment();
+                payment.paymentId = paymentIds.incrementAndGet();
+                start = System.nanoTime();
+                Booking booking = engine.confirm(hold, payment);
+                record(confirmLatency, start);
+                if (booking == null) {
+                    count(holdsLost);
+                    continue;
+                }
+                count(bookings);
+                if (random.nextDouble() < config.cancel) {
+                    engine.cancel(booking);
+                    count(cancelled);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Show search(Show wanted) {
+        Movie movie = bookMyShow.movieController.getMovieByName(City.Bangalore, wanted.getMovie().getMovieName());
+        if (movie == null) {
+            return null;
+        }
+        List<Show> theatreShows = bookMyShow.theatreController.getAllShow(movie, City.Bangalore)
+                .get(theatreByShowId.get(wanted.getShowId()));
+        if (theatreShows != null) {
+            for (Show show : theatreShows) {
+                if (show.getShowId() == wanted.getShowId()) {
+                    return show;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Seats the user goes for after a look at the seat map: seatsPerBooking free seats next to each other
+     * in the row of the preferred seat, or else around the next seat down the preference order.
+     * The map can be stale by the time of the hold, which is where conflicts come from. Null when nothing fits.
+     */
+    private int[] pickSeats(Show show, Random random) {
+        SeatBitmap seatMap = show.getSeatBitmap();
+        int[] seatIds = new int[config.seatsPerBooking];
+        int first = seatPreference.sample(random);
+        for (int i = 0; i < seatsByPreference.length; i++) {
+            int seatId = seatsByPreference[(first + i) % seatsByPreference.length];
+            int row = seatId / config.seatsPerRow;
+            int start = Math.min(seatId % config.seatsPerRow, config.seatsPerRow - config.seatsPerBooking);
+            boolean free = true;
+            for (int j = 0; j < seatIds.length && free; j++) {
+                seatIds[j] = row * config.seatsPerRow + start + j;
+                free = !seatMap.isBooked(seatIds[j]);
+            }
+            if (free) {
+                return seatIds;
+            }
+        }
+        return null;
+    }
+
+    private boolean record(LatencyHistogram histogram, long startNanos) {
+        long now = System.nanoTime();
+        if (now - measureFromNanos < 0 || now - endNanos > 0) {
+            return false;
+        }
+        histogram.record(now - startNanos);
+        return true;
+    }
+
+    private void count(LongAdder counter) {
+        long now = System.nanoTime();
+        if (now - measureFromNanos >= 0 && now - endNanos <= 0) {
+            counter.increment();
+        }
+    }
+
+    //uniform between 0 and twice the mean, so users do not move in lock step
+    private static void pause(Random random, long meanMillis) throws InterruptedException {
+        if (meanMillis > 0) {
+            Thread.sleep(random.nextLong(2 * meanMillis + 1));
+        }
+    }
+
+    private void report(double seconds) throws IOException {
+
+        System.out.printf(Locale.ROOT, "%nmeasured %.1f s, latencies in microseconds%n", seconds);
+        System.out.printf(Locale.ROOT, "%-8s %10s %10s %9s %9s %9s %9s %9s %9s%n",
+                "call", "count", "ops/s", "mean", "p50", "p90", "p99", "p99.9", "max");
+        reportLatency("search", searchLatency, seconds);
+        reportLatency("hold", holdLatency, seconds);
+        reportLatency("confirm", confirmLatency, seconds);
+
+        long attempts = holdAttempts.sum();
+        System.out.printf(Locale.ROOT, "%nbookings: %d (%.1f/s), cancelled: %d%n",
+                bookings.sum(), bookings.sum() / seconds, cancelled.sum());
+        System.out.printf(Locale.ROOT, "hold attempts: %d, conflicts: %d, conflict rate: %.2f%%%n",
+                attempts, conflicts.sum(), attempts == 0 ? 0 : 100.0 * conflicts.sum() / attempts);
+        System.out.printf(Locale.ROOT, "gave up after conflicts: %d, sold out: %d, payment failed: %d, "
+                        + "hold expired before confirm: %d, holds expired: %d%n",
+                abandoned.sum(), soldOut.sum(), paymentFailures.sum(), holdsLost.sum(),
+                bookMyShow.bookingEngine.seatHoldManager.expiredCount());
+
+        long searches = searchLatency.count();
+        StringBuilder skew = new StringBuilder("searches of the 3 most popular shows:");
+        for (int rank = 0; rank < Math.min(3, shows.size()); rank++) {
+            skew.append(String.format(Locale.ROOT, " %.1f%% (zipf %.1f%%)",
+                    searches == 0 ? 0 : 100.0 * searchesByRank.get(rank) / searches,
+                    100 * showPopularity.probability(rank)));
+        }
+        System.out.println(skew);
+        int seatsTaken = 0;
+        for (Show show : shows) {
+            seatsTaken += show.getSeatBitmap().bookedCount();
+        }
+        System.out.printf(Locale.ROOT, "seats taken: %d of %d%n", seatsTaken,
+                shows.size() * config.rows * config.seatsPerRow);
+
+        if (config.hgrm != null) {
+            Path directory = Path.of(config.hgrm);
+            Files.createDirectories(directory);
+            writeDistribution(directory.resolve("search.hgrm"), searchLatency);
+            writeDistribution(directory.resolve("hold.hgrm"), holdLatency);
+            writeDistribution(directory.resolve("confirm.hgrm"), confirmLatency);
+            System.out.println("percentile distributions written to " + directory.toAbsolutePath());
+        }
+    }
+
+    private static void reportLatency(String name, LatencyHistogram histogram, double seconds) {
+        System.out.printf(Locale.ROOT, "%-8s %10d %10.1f %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                name, histogram.count(), histogram.count() / seconds, histogram.mean() / 1e3,
+                histogram.valueAtPercentile(50) / 1e3, histogram.valueAtPercentile(90) / 1e3,
+                histogram.valueAtPercentile(99) / 1e3, histogram.valueAtPercentile(99.9) / 1e3,
+                histogram.max() / 1e3);
+    }
+
+    private static void writeDistribution(Path file, LatencyHistogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, "UTF-8")) {
+            histogram.outputPercentileDistribution(out, 1e3);
+        }
+    }
+
+    public static void main(String args[]) throws Exception {
+        new BookingLoadGenerator(Config.fromArgs(args)).run();
+    }
+}
@@ -0,0 +1,38 @@
+package LowLevelDesign.DesignBookMyShow;
+
+import LowLevelDesign.DesignBookMyShow.Enums.SeatCategory;
+
+//one item of a batch booking: either given seats, or the best block of seatCount seats of a category
+public class BookingRequest {
+
+    final Show show;
+    final int[] seatIds;
+    final SeatCategory seatCategory;
+    final int seatCount;
+
+    public BookingRequest(Show show, int... seatIds) {
+        this.show = show;
+        this.seatIds = seatIds.clone();
+        this.seatCategory = null;
+        this.seatCount = seatIds.length;
+    }
+
+    public BookingRequest(Show show, SeatCategory seatCategory, int seatCount) {
+        this.show = show;
+        this.seatIds = null;
+        this.seatCategory = seatCategory;
+        this.seatCount = seatCount;
+    }
+
+    public Show getShow() {
+        return show;
+    }
+
+    public SeatCategory getSeatCategory() {
+        return seatCategory;
+    }
+
+    public int getSeatCount() {
+        return seatCount;
+    }
+}
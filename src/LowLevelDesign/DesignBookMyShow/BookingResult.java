@@ -0,0 +1,36 @@
+package LowLevelDesign.DesignBookMyShow;
+
+import LowLevelDesign.DesignBookMyShow.Enums.BookingStatus;
+
+public class BookingResult {
+
+    final BookingRequest request;
+    final BookingStatus status;
+    //set when status is BOOKED
+    final Booking booking;
+    //set when status is FAILED
+    final RuntimeException error;
+
+    BookingResult(BookingRequest request, BookingStatus status, Booking booking, RuntimeException error) {
+        this.request = request;
+        this.status = status;
+        this.booking = booking;
+        this.error = error;
+    }
+
+    public BookingRequest getRequest() {
+        return request;
+    }
+
+    public BookingStatus getStatus() {
+        return status;
+    }
+
+    public Booking getBooking() {
+        return booking;
+    }
+
+    public RuntimeException getError() {
+        return error;
+    }
+}
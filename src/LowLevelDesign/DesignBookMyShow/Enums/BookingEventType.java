@@ -0,0 +1,11 @@
+package LowLevelDesign.DesignBookMyShow.Enums;
+
+//kinds of records in the BookingJournal, the ordinal is the byte written to disk so only append new ones
+public enum BookingEventType {
+
+    BOOKED,
+    HELD,
+    PAID,
+    RELEASED,
+    CANCELLED;
+}
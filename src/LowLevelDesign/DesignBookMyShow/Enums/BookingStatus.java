@@ -0,0 +1,8 @@
+package LowLevelDesign.DesignBookMyShow.Enums;
+
+public enum BookingStatus {
+
+    BOOKED,
+    SEATS_UNAVAILABLE,
+    FAILED;
+}
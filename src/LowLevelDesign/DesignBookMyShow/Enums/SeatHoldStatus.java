@@ -0,0 +1,9 @@
+package LowLevelDesign.DesignBookMyShow.Enums;
+
+public enum SeatHoldStatus {
+
+    HELD,
+    CONFIRMED,
+    RELEASED,
+    EXPIRED;
+}
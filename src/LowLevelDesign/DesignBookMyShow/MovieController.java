@@ -1,8 +1,11 @@
 package LowLevelDesign.DesignBookMyShow;
 
 import LowLevelDesign.DesignBookMyShow.Enums.City;
+import LowLevelDesign.DesignDataStructures.SnapshotPublisher;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -12,36 +15,77 @@ public class MovieController {
     Map<City, List<Movie>> cityVsMovies;
     List<Movie> allMovies;
 
+    //indexes kept up to date by addMovie, so lookups by name do not scan the catalog
+    Map<String, Movie> nameVsMovie;
+    Map<City, Map<String, Movie>> cityVsMovieByName;
+
+    //what browse requests read: an immutable copy of the maps above, rebuilt in the background after changes
+    final SnapshotPublisher<Catalog> catalog;
+
+    static final class Catalog {
+        final Map<City, List<Movie>> cityVsMovies;
+        final Map<String, Movie> nameVsMovie;
+        final Map<City, Map<String, Movie>> cityVsMovieByName;
+
+        Catalog(MovieController controller) {
+            Map<City, List<Movie>> movies = new EnumMap<>(City.class);
+            controller.cityVsMovies.forEach((city, list) -> movies.put(city, List.copyOf(list)));
+            Map<City, Map<String, Movie>> byName = new EnumMap<>(City.class);
+            controller.cityVsMovieByName.forEach((city, map) -> byName.put(city, Map.copyOf(map)));
+            this.cityVsMovies = Collections.unmodifiableMap(movies);
+            this.nameVsMovie = Map.copyOf(controller.nameVsMovie);
+            this.cityVsMovieByName = Collections.unmodifiableMap(byName);
+        }
+    }
+
     MovieController(){
         cityVsMovies = new HashMap<>();
         allMovies = new ArrayList<>();
+        nameVsMovie = new HashMap<>();
+        cityVsMovieByName = new EnumMap<>(City.class);
+        catalog = new SnapshotPublisher<>("movie-catalog", this::buildCatalog);
     }
 
 
     //ADD movie to a particular city, make use of cityVsMovies map
-    void addMovie(Movie movie, City city) {
+    synchronized void addMovie(Movie movie, City city) {
 
         allMovies.add(movie);
 
         List<Movie> movies = cityVsMovies.getOrDefault(city, new ArrayList<>());
         movies.add(movie);
         cityVsMovies.put(city, movies);
+
+        //first movie added under a name wins, same as the scan over allMovies did
+        nameVsMovie.putIfAbsent(movie.getMovieName(), movie);
+        cityVsMovieByName.computeIfAbsent(city, c -> new HashMap<>()).putIfAbsent(movie.getMovieName(), movie);
+
+        catalog.invalidate();
     }
 
 
+    //browse lookups read the published catalog without locking, movies added a moment ago may not be in it yet
     Movie getMovieByName(String movieName) {
+        return catalog.current().nameVsMovie.get(movieName);
+    }
 
-        for(Movie movie : allMovies) {
-            if((movie.getMovieName()).equals(movieName)) {
-                return movie;
-            }
-        }
-        return null;
+    Movie getMovieByName(City city, String movieName) {
+        Map<String, Movie> movies = catalog.current().cityVsMovieByName.get(city);
+        return movies == null ? null : movies.get(movieName);
     }
 
 
     List<Movie> getMoviesByCity(City city) {
-        return cityVsMovies.get(city);
+        return catalog.current().cityVsMovies.get(city);
+    }
+
+    //waits until every movie added so far is visible to the lookups
+    void awaitCatalog() {
+        catalog.awaitFresh();
+    }
+
+    private synchronized Catalog buildCatalog() {
+        return new Catalog(this);
     }
     //REMOVE movie from a particular city, make use of cityVsMovies map
 
@@ -1,13 +1,22 @@
 package LowLevelDesign.DesignBookMyShow;
 
+import LowLevelDesign.DesignBookMyShow.Enums.SeatCategory;
+
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 public class Screen {
 
     int screenId;
     List<Seat> seats = new ArrayList<>();
 
+    //derived from seats on first use: seat by id, and one bit per seat id for every category;
+    //volatile and only assigned once fully built, so booking threads never see them half filled
+    volatile Seat[] seatById;
+    volatile Map<SeatCategory, long[]> categoryMasks;
+
     public int getScreenId() {
         return screenId;
     }
@@ -22,5 +31,49 @@ public class Screen {
 
     public void setSeats(List<Seat> seats) {
         this.seats = seats;
+        seatById = null;
+        categoryMasks = null;
+    }
+
+    //seat ids are used as bit positions, so they are expected to be small and dense
+    public int getSeatIdRange() {
+        return seatIndex().length;
+    }
+
+    public Seat getSeat(int seatId) {
+        Seat[] index = seatIndex();
+        return seatId >= 0 && seatId < index.length ? index[seatId] : null;
+    }
+
+    public long[] getCategoryMask(SeatCategory category) {
+        Map<SeatCategory, long[]> masks = categoryMasks;
+        if (masks == null) {
+            masks = new EnumMap<>(SeatCategory.class);
+            int words = SeatBitmap.wordCount(getSeatIdRange());
+            for (SeatCategory seatCategory : SeatCategory.values()) {
+                masks.put(seatCategory, new long[words]);
+            }
+            for (Seat seat : seats) {
+                masks.get(seat.getSeatCategory())[seat.getSeatId() >>> 6] |= 1L << seat.getSeatId();
+            }
+            categoryMasks = masks;
+        }
+        return masks.get(category);
+    }
+
+    private Seat[] seatIndex() {
+        Seat[] index = seatById;
+        if (index == null) {
+            int range = 0;
+            for (Seat seat : seats) {
+                range = Math.max(range, seat.getSeatId() + 1);
+            }
+            index = new Seat[range];
+            for (Seat seat : seats) {
+                index[seat.getSeatId()] = seat;
+            }
+            seatById = index;
+        }
+        return index;
     }
 }
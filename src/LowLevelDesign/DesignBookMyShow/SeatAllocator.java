@@ -0,0 +1,301 @@
+package LowLevelDesign.DesignBookMyShow;
+
+import LowLevelDesign.DesignBookMyShow.Enums.SeatCategory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Picks the best free block of seats next to each other for "4 GOLD seats together".
+ * Every row keeps one segment tree per category over its seat positions (seats of a row are ordered by seat id),
+ * each node knowing its longest free run and the free runs touching its two ends.
+ * The block closest to the middle of a row is found with two O(log n) walks down the tree, and rows are visited
+ * from the middle of the screen outwards until no remaining row can beat the best block found,
+ * so a request costs O(log n) per visited row, not a scan of the seats.
+ * Score of a block: squared distance of its centre to the centre of the rows of its category, in rows and seats.
+ *
+ * The show's SeatBitmap stays the source of truth: the chosen block is only taken once the caller managed to claim it there.
+ * The block is picked and reserved in the trees under the allocator's lock, the claim (which may wait for the journal)
+ * runs outside it, so other requests for the show go on meanwhile. If another buyer got one of the seats first,
+ * the reservation is dropped, the row is reloaded from the bitmap and the search runs again.
+ * Released seats are reported back through seatsReleased. One allocator per show.
+ */
+public class SeatAllocator {
+
+    final SeatBitmap bitmap;
+    //middle of the rows having seats of the category
+    final Map<SeatCategory, Double> centreRowByCategory = new EnumMap<>(SeatCategory.class);
+    //rows having seats of the category, nearest to the centre row first
+    final Map<SeatCategory, List<RowTree>> rowsByCategory = new EnumMap<>(SeatCategory.class);
+    //tree and position of every seat id
+    final RowTree[] treeBySeat;
+    final int[] positionBySeat;
+    //seats picked for a claim that is still running, they are not free whatever the bitmap says
+    final boolean[] reserved;
+
+    public SeatAllocator(Screen screen, SeatBitmap bitmap) {
+
+        this.bitmap = bitmap;
+        this.treeBySeat = new RowTree[screen.getSeatIdRange()];
+        this.positionBySeat = new int[screen.getSeatIdRange()];
+        this.reserved = new boolean[screen.getSeatIdRange()];
+
+        TreeMap<Integer, List<Seat>> seatsByRow = new TreeMap<>();
+        for (Seat seat : screen.getSeats()) {
+            seatsByRow.computeIfAbsent(seat.getRow(), row -> new ArrayList<>()).add(seat);
+        }
+
+        for (Map.Entry<Integer, List<Seat>> entry : seatsByRow.entrySet()) {
+            List<Seat> rowSeats = entry.getValue();
+            rowSeats.sort(Comparator.comparingInt(Seat::getSeatId));
+            Map<SeatCategory, RowTree> rowTrees = new EnumMap<>(SeatCategory.class);
+            for (int position = 0; position < rowSeats.size(); position++) {
+                Seat seat = rowSeats.get(position);
+                RowTree tree = rowTrees.computeIfAbsent(seat.getSeatCategory(),
+                        category -> new RowTree(entry.getKey(), rowSeats.size()));
+                tree.seatIds[position] = seat.getSeatId();
+                treeBySeat[seat.getSeatId()] = tree;
+                positionBySeat[seat.getSeatId()] = position;
+            }
+            for (Map.Entry<SeatCategory, RowTree> rowTree : rowTrees.entrySet()) {
+                rowTree.getValue().reload(bitmap, reserved);
+                rowsByCategory.computeIfAbsent(rowTree.getKey(), category -> new ArrayList<>()).add(rowTree.getValue());
+            }
+        }
+        for (Map.Entry<SeatCategory, List<RowTree>> entry : rowsByCategory.entrySet()) {
+            List<RowTree> rows = entry.getValue();
+            int firstRow = Integer.MAX_VALUE;
+            int lastRow = Integer.MIN_VALUE;
+            for (RowTree tree : rows) {
+                firstRow = Math.min(firstRow, tree.row);
+                lastRow = Math.max(lastRow, tree.row);
+            }
+            double centreRow = (firstRow + lastRow) / 2.0;
+            centreRowByCategory.put(entry.getKey(), centreRow);
+            rows.sort(Comparator.comparingDouble(tree -> Math.abs(tree.row - centreRow)));
+        }
+    }
+
+    /**
+     * Finds the best block of count seats and hands its seat ids to claim, which takes them in the SeatBitmap
+     * (a booking or a hold) and says whether that worked. Retries with fresh rows while claims fail;
+     * returns the claimed seat ids, or null when no block of that size is free.
+     */
+    public int[] allocate(SeatCategory category, int count, Predicate<int[]> claim) {
+
+        if (count <= 0) {
+            throw new IllegalArgumentException("count must be positive");
+        }
+        boolean reloadedAll = false;
+        while (true) {
+            int[] block;
+            synchronized (this) {
+                block = findBest(category, count);
+                if (block == null) {
+                    //seats claimed and given back by others may still look taken here, look once more at the bitmap
+                    if (reloadedAll) {
+                        return null;
+                    }
+                    reloadCategory(category);
+                    reloadedAll = true;
+                    continue;
+                }
+                RowTree tree = treeBySeat[block[0]];
+                for (int seatId : block) {
+                    reserved[seatId] = true;
+                    tree.update(positionBySeat[seatId], false);
+                }
+            }
+            boolean claimed = false;
+            try {
+                claimed = claim.test(block);
+            } finally {
+                synchronized (this) {
+                    for (int seatId : block) {
+                        reserved[seatId] = false;
+                    }
+                    if (!claimed) {
+                        treeBySeat[block[0]].reload(bitmap, reserved);
+                    }
+                }
+            }
+            if (claimed) {
+                return block;
+            }
+        }
+    }
+
+    //best free block as seat ids, without claiming it
+    public synchronized int[] findBest(SeatCategory category, int count) {
+
+        List<RowTree> rows = rowsByCategory.get(category);
+        if (rows == null) {
+            return null;
+        }
+        double centreRow = centreRowByCategory.get(category);
+        RowTree bestTree = null;
+        int bestStart = -1;
+        double bestScore = Double.MAX_VALUE;
+        for (RowTree tree : rows) {
+            double rowDistance = tree.row - centreRow;
+            if (rowDistance * rowDistance >= bestScore) {
+                break;
+            }
+            if (tree.max[1] < count) {
+                continue;
+            }
+            int start = tree.bestStart(count);
+            double seatDistance = start + (count - 1) / 2.0 - (tree.length - 1) / 2.0;
+            double score = rowDistance * rowDistance + seatDistance * seatDistance;
+            if (score < bestScore) {
+                bestScore = score;
+                bestTree = tree;
+                bestStart = start;
+            }
+        }
+        if (bestTree == null) {
+            return null;
+        }
+        int[] block = new int[count];
+        System.arraycopy(bestTree.seatIds, bestStart, block, 0, count);
+        return block;
+    }
+
+    //called after seats went back to the SeatBitmap
+    public synchronized void seatsReleased(int[] seatIds) {
+        for (int seatId : seatIds) {
+            RowTree tree = seatId >= 0 && seatId < treeBySeat.length ? treeBySeat[seatId] : null;
+            if (tree != null) {
+                tree.update(positionBySeat[seatId], !reserved[seatId] && !bitmap.isBooked(seatId));
+            }
+        }
+    }
+
+    private void reloadCategory(SeatCategory category) {
+        List<RowTree> rows = rowsByCategory.get(category);
+        if (rows != null) {
+            for (RowTree tree : rows) {
+                tree.reload(bitmap, reserved);
+            }
+        }
+    }
+
+    /**
+     * Segment tree over the positions of one row for one category; positions of other categories are never free.
+     * Node 1 is the root, children of node i are 2i and 2i+1, leaves start at size.
+     */
+    static final class RowTree {
+
+        final int row;
+        final int length;
+        final int size;
+        //seat id per position, -1 where the seat has another category
+        final int[] seatIds;
+        //free run starting at the node's left end, ending at its right end, and the longest one inside it
+        final int[] prefix;
+        final int[] suffix;
+        final int[] max;
+
+        RowTree(int row, int length) {
+            this.row = row;
+            this.length = length;
+            this.size = Integer.highestOneBit(Math.max(1, length - 1)) << 1;
+            this.seatIds = new int[length];
+            Arrays.fill(seatIds, -1);
+            this.prefix = new int[2 * size];
+            this.suffix = new int[2 * size];
+            this.max = new int[2 * size];
+        }
+
+        void reload(SeatBitmap bitmap, boolean[] reserved) {
+            for (int position = 0; position < size; position++) {
+                int seatId = position < length ? seatIds[position] : -1;
+                int free = seatId >= 0 && !reserved[seatId] && !bitmap.isBooked(seatId) ? 1 : 0;
+                prefix[size + position] = suffix[size + position] = max[size + position] = free;
+            }
+            for (int node = size - 1; node >= 1; node--) {
+                pull(node, size / Integer.highestOneBit(node) / 2);
+            }
+        }
+
+        void update(int position, boolean free) {
+            if (seatIds[position] < 0) {
+                return;
+            }
+            int node = size + position;
+            prefix[node] = suffix[node] = max[node] = free ? 1 : 0;
+            int half = 1;
+            for (node >>>= 1; node >= 1; node >>>= 1) {
+                pull(node, half);
+                half <<= 1;
+            }
+        }
+
+        //start of the free block of count seats whose centre is closest to the row centre; max[1] >= count
+        int bestStart(int count) {
+            int ideal = (length - count) / 2;
+            int right = firstFit(1, 0, size, ideal, count, new int[1]);
+            int left = lastFit(1, 0, size, ideal + count, count, new int[1]);
+            if (right < 0) {
+                return left;
+            }
+            if (left < 0) {
+                return right;
+            }
+            double middle = (length - count) / 2.0;
+            return Math.abs(left - middle) <= Math.abs(right - middle) ? left : right;
+        }
+
+        private void pull(int node, int childWidth) {
+            int l = 2 * node;
+            int r = l + 1;
+            prefix[node] = prefix[l] == childWidth ? childWidth + prefix[r] : prefix[l];
+            suffix[node] = suffix[r] == childWidth ? childWidth + suffix[l] : suffix[r];
+            max[node] = Math.max(Math.max(max[l], max[r]), suffix[l] + prefix[r]);
+        }
+
+        //leftmost block starting at or after from; carry[0] is the free run that ends right before lo
+        private int firstFit(int node, int lo, int hi, int from, int count, int[] carry) {
+            if (hi <= from) {
+                return -1;
+            }
+            if (lo >= from) {
+                if (carry[0] + prefix[node] >= count) {
+                    return lo - carry[0];
+                }
+                if (max[node] < count) {
+                    carry[0] = prefix[node] == hi - lo ? carry[0] + (hi - lo) : suffix[node];
+                    return -1;
+                }
+            }
+            int mid = (lo + hi) >>> 1;
+            int found = firstFit(2 * node, lo, mid, from, count, carry);
+            return found >= 0 ? found : firstFit(2 * node + 1, mid, hi, from, count, carry);
+        }
+
+        //rightmost block ending at or before to (exclusive); carry[0] is the free run that starts right after hi
+        private int lastFit(int node, int lo, int hi, int to, int count, int[] carry) {
+            if (lo >= to) {
+                return -1;
+            }
+            if (hi <= to) {
+                if (carry[0] + suffix[node] >= count) {
+                    return hi + carry[0] - count;
+                }
+                if (max[node] < count) {
+                    carry[0] = suffix[node] == hi - lo ? carry[0] + (hi - lo) : prefix[node];
+                    return -1;
+                }
+            }
+            int mid = (lo + hi) >>> 1;
+            int found = lastFit(2 * node + 1, mid, hi, to, count, carry);
+            return found >= 0 ? found : lastFit(2 * node, lo, mid, to, count, carry);
+        }
+    }
+}
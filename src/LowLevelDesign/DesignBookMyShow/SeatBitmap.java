@@ -0,0 +1,194 @@
+package LowLevelDesign.DesignBookMyShow;
+
+import LowLevelDesign.DesignBookMyShow.Enums.SeatCategory;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Booked seats of one show, one bit per seat id (bit set = booked).
+ * A 2000 seat screen is 32 longs, i.e. four cache lines, so a check or a booking is a single word operation,
+ * and free seat counts are popcounts. Category filters come from the screen's category masks.
+ * Words are updated with compare-and-set, so any number of threads can book the same show without a lock;
+ * claimAll books several seats all-or-nothing.
+ */
+public class SeatBitmap {
+
+    private static final int BITS_PER_WORD = 64;
+
+    final Screen screen;
+    final int seatCount;
+    final AtomicLongArray booked;
+
+    public SeatBitmap(Screen screen) {
+        this.screen = screen;
+        this.seatCount = screen.getSeatIdRange();
+        this.booked = new AtomicLongArray(wordCount(seatCount));
+    }
+
+    static int wordCount(int bits) {
+        return (bits + BITS_PER_WORD - 1) / BITS_PER_WORD;
+    }
+
+    public boolean isBooked(int seatId) {
+        checkSeat(seatId);
+        return (booked.get(seatId >>> 6) & (1L << seatId)) != 0;
+    }
+
+    //marks the seat booked; false if it already was
+    public boolean testAndSet(int seatId) {
+        checkSeat(seatId);
+        return setBits(seatId >>> 6, 1L << seatId);
+    }
+
+    public void clear(int seatId) {
+        checkSeat(seatId);
+        clearBits(seatId >>> 6, 1L << seatId);
+    }
+
+    /**
+     * Books every seat or none of them. Seats are grouped per word and the words are claimed in ascending order;
+     * if one word has a taken seat, the words claimed so far are given back.
+     * While that happens another buyer may briefly see those seats as taken, but a seat is never sold twice.
+     */
+    public boolean claimAll(int[] seatIds) {
+        int[] sorted = sortedCopy(seatIds);
+        int start = 0;
+        while (start < sorted.length) {
+            int word = sorted[start] >>> 6;
+            int end = start;
+            long mask = 0;
+            while (end < sorted.length && (sorted[end] >>> 6) == word) {
+                mask |= 1L << sorted[end];
+                end++;
+            }
+            if (!setBits(word, mask)) {
+                releaseRange(sorted, 0, start);
+                return false;
+            }
+            start = end;
+        }
+        return true;
+    }
+
+    public void releaseAll(int[] seatIds) {
+        int[] sorted = sortedCopy(seatIds);
+        releaseRange(sorted, 0, sorted.length);
+    }
+
+    public void clearAll() {
+        for (int w = 0; w < booked.length(); w++) {
+            booked.set(w, 0L);
+        }
+    }
+
+    //books the seats whether or not they are free, used when replaying a journal
+    public void markAll(int[] seatIds) {
+        for (int seatId : seatIds) {
+            checkSeat(seatId);
+            setBitsUnconditionally(seatId >>> 6, 1L << seatId);
+        }
+    }
+
+    //copy of the words, for snapshots
+    public long[] toLongArray() {
+        long[] words = new long[booked.length()];
+        for (int w = 0; w < words.length; w++) {
+            words[w] = booked.get(w);
+        }
+        return words;
+    }
+
+    //replaces the whole bitmap, for restoring a snapshot; not atomic with concurrent bookings
+    public void load(long[] words) {
+        if (words.length != booked.length()) {
+            throw new IllegalArgumentException("Snapshot has " + words.length + " words, the screen needs " + booked.length());
+        }
+        for (int w = 0; w < words.length; w++) {
+            booked.set(w, words[w]);
+        }
+    }
+
+    public int bookedCount() {
+        int count = 0;
+        for (int w = 0; w < booked.length(); w++) {
+            count += Long.bitCount(booked.get(w));
+        }
+        return count;
+    }
+
+    public int availableCount() {
+        return screen.getSeats().size() - bookedCount();
+    }
+
+    public int availableCount(SeatCategory category) {
+        long[] mask = screen.getCategoryMask(category);
+        int count = 0;
+        for (int w = 0; w < booked.length(); w++) {
+            count += Long.bitCount(mask[w] & ~booked.get(w));
+        }
+        return count;
+    }
+
+    //sets all bits of mask in the word, only if none of them is set yet
+    private boolean setBits(int word, long mask) {
+        while (true) {
+            long current = booked.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (booked.compareAndSet(word, current, current | mask)) {
+                return true;
+            }
+        }
+    }
+
+    private void setBitsUnconditionally(int word, long mask) {
+        while (true) {
+            long current = booked.get(word);
+            if (booked.compareAndSet(word, current, current | mask)) {
+                return;
+            }
+        }
+    }
+
+    private void clearBits(int word, long mask) {
+        while (true) {
+            long current = booked.get(word);
+            if (booked.compareAndSet(word, current, current & ~mask)) {
+                return;
+            }
+        }
+    }
+
+    private void releaseRange(int[] sorted, int from, int to) {
+        int start = from;
+        while (start < to) {
+            int word = sorted[start] >>> 6;
+            long mask = 0;
+            while (start < to && (sorted[start] >>> 6) == word) {
+                mask |= 1L << sorted[start];
+                start++;
+            }
+            clearBits(word, mask);
+        }
+    }
+
+    private int[] sortedCopy(int[] seatIds) {
+        int[] sorted = seatIds.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++) {
+            checkSeat(sorted[i]);
+            if (i > 0 && sorted[i] == sorted[i - 1]) {
+                throw new IllegalArgumentException("Seat " + sorted[i] + " requested twice");
+            }
+        }
+        return sorted;
+    }
+
+    private void checkSeat(int seatId) {
+        if (seatId < 0 || seatId >= seatCount) {
+            throw new IllegalArgumentException("Invalid seat id: " + seatId);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package LowLevelDesign.DesignBookMyShow;
+
+import LowLevelDesign.DesignBookMyShow.Enums.SeatHoldStatus;
+import LowLevelDesign.DesignDataStructures.HierarchicalTimerWheel;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Seats of a show kept aside for one buyer while the payment runs.
+ * It leaves HELD exactly once, so a payment confirmed at the moment the hold expires either books or releases the seats, never both.
+ */
+public class SeatHold {
+
+    final long holdId;
+    final Show show;
+    final int[] seatIds;
+    final long expiresAtMillis;
+    final AtomicReference<SeatHoldStatus> status = new AtomicReference<>(SeatHoldStatus.HELD);
+    HierarchicalTimerWheel.Timeout<SeatHold> timeout;
+
+    SeatHold(long holdId, Show show, int[] seatIds, long expiresAtMillis) {
+        this.holdId = holdId;
+        this.show = show;
+        this.seatIds = seatIds;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public long getHoldId() {
+        return holdId;
+    }
+
+    public Show getShow() {
+        return show;
+    }
+
+    public int[] getSeatIds() {
+        return seatIds.clone();
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    public SeatHoldStatus getStatus() {
+        return status.get();
+    }
+
+    boolean moveFromHeld(SeatHoldStatus newStatus) {
+        return status.compareAndSet(SeatHoldStatus.HELD, newStatus);
+    }
+}
@@ -0,0 +1,206 @@
+package LowLevelDesign.DesignBookMyShow;
+
+import LowLevelDesign.DesignBookMyShow.Enums.BookingEventType;
+import LowLevelDesign.DesignBookMyShow.Enums.SeatCategory;
+import LowLevelDesign.DesignBookMyShow.Enums.SeatHoldStatus;
+import LowLevelDesign.DesignDataStructures.HierarchicalTimerWheel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Holds seats for a limited time and gives them back when the time is up.
+ * A held seat is taken in the show's SeatBitmap like a booked one, and is also marked in the show's held seats.
+ * Deadlines live in one HierarchicalTimerWheel, ticked by a single background thread,
+ * so there is no scheduled task per hold and a tick costs the same with ten or ten million holds outstanding.
+ * With a BookingJournal, holds, payments and releases are logged, and hold and confirm return once their record is durable.
+ */
+public class SeatHoldManager implements AutoCloseable {
+
+    static final long DEFAULT_TICK_MILLIS = 100;
+
+    final LongSupplier clock;
+    final long tickMillis;
+    final HierarchicalTimerWheel<SeatHold> wheel;
+    final AtomicLong holdIds = new AtomicLong();
+    final AtomicLong expiredCount = new AtomicLong();
+    //null when nothing is persisted
+    final BookingJournal journal;
+    ScheduledExecutorService ticker;
+
+    public SeatHoldManager() {
+        this(DEFAULT_TICK_MILLIS, System::currentTimeMillis);
+    }
+
+    public SeatHoldManager(long tickMillis, LongSupplier clock) {
+        this(tickMillis, clock, null);
+    }
+
+    public SeatHoldManager(long tickMillis, LongSupplier clock, BookingJournal journal) {
+        this.clock = clock;
+        this.journal = journal;
+        this.tickMillis = tickMillis;
+        this.wheel = new HierarchicalTimerWheel<>(tickMillis, clock.getAsLong());
+    }
+
+    //returns null when any of the seats is already held or booked
+    public SeatHold hold(Show show, long ttlMillis, int... seatIds) {
+
+        if (seatIds.length == 0) {
+            return null;
+        }
+        long expiresAt = clock.getAsLong() + ttlMillis;
+        SeatHold hold = new SeatHold(holdIds.incrementAndGet(), show, seatIds.clone(), expiresAt);
+        //claimed and logged together, and before the timeout exists, so the expiry always comes after it in the journal
+        long lsn = 0;
+        if (journal == null) {
+            if (!claimHeld(show, hold.seatIds)) {
+                return null;
+            }
+        } else {
+            lsn = journal.claimThenAppend(BookingEventType.HELD, show.getShowId(), hold.holdId, 0, hold.seatIds,
+                    () -> claimHeld(show, hold.seatIds));
+            if (lsn < 0) {
+                return null;
+            }
+        }
+        hold.timeout = wheel.schedule(hold, expiresAt);
+        if (journal != null) {
+            journal.awaitDurable(lsn);
+        }
+        return hold;
+    }
+
+    //turns the hold into booked seats; false if it expired or was released before
+    public boolean confirm(SeatHold hold) {
+        return confirm(hold, 0);
+    }
+
+    public boolean confirm(SeatHold hold, int paymentId) {
+        if (!hold.moveFromHeld(SeatHoldStatus.CONFIRMED)) {
+            return false;
+        }
+        hold.timeout.cancel();
+        long lsn = logThenApply(BookingEventType.PAID, hold, paymentId,
+                () -> hold.show.getHeldSeats().releaseAll(hold.seatIds));
+        if (journal != null) {
+            journal.awaitDurable(lsn);
+        }
+        return true;
+    }
+
+    //gives the seats back before the hold expires, e.g. when the payment failed
+    public boolean release(SeatHold hold) {
+        if (!hold.moveFromHeld(SeatHoldStatus.RELEASED)) {
+            return false;
+        }
+        hold.timeout.cancel();
+        freeSeats(hold);
+        return true;
+    }
+
+    //releases every hold whose time is up, called by the ticker thread
+    public void expireHolds() {
+        wheel.advance(clock.getAsLong(), this::expire);
+    }
+
+    //starts the background ticker, a no-op when it runs already
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "seat-hold-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::expireHolds, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public int outstandingHolds() {
+        return wheel.size();
+    }
+
+    public long expiredCount() {
+        return expiredCount.get();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    private static boolean claimHeld(Show show, int[] seatIds) {
+        if (!show.getSeatBitmap().claimAll(seatIds)) {
+            return false;
+        }
+        //nobody else can own these seats now, so marking them held cannot fail
+        show.getHeldSeats().claimAll(seatIds);
+        return true;
+    }
+
+    private void expire(SeatHold hold) {
+        if (hold.moveFromHeld(SeatHoldStatus.EXPIRED)) {
+            freeSeats(hold);
+            expiredCount.incrementAndGet();
+        }
+    }
+
+    private void freeSeats(SeatHold hold) {
+        logThenApply(BookingEventType.RELEASED, hold, 0, () -> {
+            hold.show.getHeldSeats().releaseAll(hold.seatIds);
+            hold.show.getSeatBitmap().releaseAll(hold.seatIds);
+        });
+        hold.show.seatsReleased(hold.seatIds);
+    }
+
+    //seats going back are logged before they are given back, see BookingJournal
+    private long logThenApply(BookingEventType type, SeatHold hold, long paymentId, Runnable apply) {
+        if (journal == null) {
+            apply.run();
+            return 0;
+        }
+        return journal.appendThenApply(type, hold.show.getShowId(), hold.holdId, paymentId, hold.seatIds, apply);
+    }
+
+
+    public static void main(String args[]) {
+
+        List<Seat> seats = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Seat seat = new Seat();
+            seat.setSeatId(i);
+            seat.setSeatCategory(SeatCategory.SILVER);
+            seats.add(seat);
+        }
+        Screen screen = new Screen();
+        screen.setSeats(seats);
+        Show show = new Show();
+        show.setScreen(screen);
+
+        //manual clock, so the demo does not have to wait
+        long[] now = {0};
+        SeatHoldManager holds = new SeatHoldManager(100, () -> now[0]);
+
+        SeatHold paid = holds.hold(show, 600_000, 30, 31);
+        SeatHold abandoned = holds.hold(show, 600_000, 40, 41, 42);
+        System.out.println("seat 30 held again: " + (holds.hold(show, 600_000, 30) != null));
+        holds.confirm(paid);
+        System.out.println("available: " + show.getSeatBitmap().availableCount()
+                + ", held: " + show.getHeldSeats().bookedCount());
+
+        now[0] = 600_000;
+        holds.expireHolds();
+        System.out.println("after 10 minutes, abandoned hold: " + abandoned.getStatus()
+                + ", available: " + show.getSeatBitmap().availableCount() + ", held: " + show.getHeldSeats().bookedCount()
+                + ", confirm too late: " + holds.confirm(abandoned));
+    }
+}
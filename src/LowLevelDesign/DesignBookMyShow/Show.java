@@ -1,15 +1,16 @@
 package LowLevelDesign.DesignBookMyShow;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class Show {
 
     int showId;
     Movie movie;
     Screen screen;
     int showStartTime;
-    List<Integer> bookedSeatIds = new ArrayList<>();
+    //seats that are not available, booked or held; heldSeats are the ones of those still waiting for payment
+    SeatBitmap seatBitmap;
+    SeatBitmap heldSeats;
+    //built on first use, most shows never get a "seats together" request
+    volatile SeatAllocator seatAllocator;
 
     public int getShowId() {
         return showId;
@@ -33,6 +34,9 @@ public class Show {
 
     public void setScreen(Screen screen) {
         this.screen = screen;
+        this.seatBitmap = new SeatBitmap(screen);
+        this.heldSeats = new SeatBitmap(screen);
+        this.seatAllocator = null;
     }
 
     public int getShowStartTime() {
@@ -43,11 +47,33 @@ public class Show {
         this.showStartTime = showStartTime;
     }
 
-    public List<Integer> getBookedSeatIds() {
-        return bookedSeatIds;
+    public SeatBitmap getSeatBitmap() {
+        return seatBitmap;
+    }
+
+    public SeatBitmap getHeldSeats() {
+        return heldSeats;
+    }
+
+    public SeatAllocator getSeatAllocator() {
+        SeatAllocator allocator = seatAllocator;
+        if (allocator == null) {
+            synchronized (this) {
+                allocator = seatAllocator;
+                if (allocator == null) {
+                    allocator = new SeatAllocator(screen, seatBitmap);
+                    seatAllocator = allocator;
+                }
+            }
+        }
+        return allocator;
     }
 
-    public void setBookedSeatIds(List<Integer> bookedSeatIds) {
-        this.bookedSeatIds = bookedSeatIds;
+    //to be called once seats went back to the seat bitmap
+    public void seatsReleased(int[] seatIds) {
+        SeatAllocator allocator = seatAllocator;
+        if (allocator != null) {
+            allocator.seatsReleased(seatIds);
+        }
     }
 }
@@ -1,9 +1,13 @@
 package LowLevelDesign.DesignBookMyShow;
 
 import LowLevelDesign.DesignBookMyShow.Enums.City;
+import LowLevelDesign.DesignDataStructures.SnapshotPublisher;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -12,46 +16,114 @@ public class TheatreController {
     Map<City, List<Theatre>> cityVsTheatre;
     List<Theatre> allTheatre;
 
+    //indexes kept up to date by addTheatre and addShow, show lists are sorted by start time
+    Map<City, Map<Integer, Map<Theatre, List<Show>>>> cityVsMovieVsTheatreShows;
+    Map<Integer, List<Show>> movieVsShows;
+
+    //what browse requests read: an immutable copy of the indexes, rebuilt in the background after changes
+    final SnapshotPublisher<Catalog> catalog;
+
+    static final class Catalog {
+        final Map<City, Map<Integer, Map<Theatre, List<Show>>>> cityVsMovieVsTheatreShows;
+        final Map<Integer, List<Show>> movieVsShows;
+
+        Catalog(TheatreController controller) {
+            Map<City, Map<Integer, Map<Theatre, List<Show>>>> cities = new EnumMap<>(City.class);
+            controller.cityVsMovieVsTheatreShows.forEach((city, movies) -> {
+                Map<Integer, Map<Theatre, List<Show>>> movieCopies = new HashMap<>();
+                movies.forEach((movieId, theatres) -> {
+                    //keeps the theatres in the order they were added
+                    Map<Theatre, List<Show>> theatreCopies = new LinkedHashMap<>();
+                    theatres.forEach((theatre, shows) -> theatreCopies.put(theatre, List.copyOf(shows)));
+                    movieCopies.put(movieId, Collections.unmodifiableMap(theatreCopies));
+                });
+                cities.put(city, Map.copyOf(movieCopies));
+            });
+            Map<Integer, List<Show>> shows = new HashMap<>();
+            controller.movieVsShows.forEach((movieId, list) -> shows.put(movieId, List.copyOf(list)));
+            this.cityVsMovieVsTheatreShows = Collections.unmodifiableMap(cities);
+            this.movieVsShows = Map.copyOf(shows);
+        }
+    }
+
     TheatreController() {
         cityVsTheatre = new HashMap<>();
         allTheatre = new ArrayList<>();
+        cityVsMovieVsTheatreShows = new EnumMap<>(City.class);
+        movieVsShows = new HashMap<>();
+        catalog = new SnapshotPublisher<>("theatre-catalog", this::buildCatalog);
     }
 
-    void addTheatre(Theatre theatre, City city) {
+    synchronized void addTheatre(Theatre theatre, City city) {
 
         allTheatre.add(theatre);
 
         List<Theatre> theatres = cityVsTheatre.getOrDefault(city, new ArrayList<>());
         theatres.add(theatre);
         cityVsTheatre.put(city, theatres);
+
+        for(Show show : theatre.getShows()) {
+            indexShow(theatre, city, show);
+        }
+        catalog.invalidate();
     }
 
 
+    //adds a show to a theatre that was already added
+    synchronized void addShow(Theatre theatre, Show show) {
+        theatre.getShows().add(show);
+        indexShow(theatre, theatre.getCity(), show);
+        catalog.invalidate();
+    }
+
+    //theatres of the city running this movie, with its shows in each; read only, from the published catalog
     Map<Theatre, List<Show>> getAllShow(Movie movie, City city) {
 
-        //get all the theater of this city
+        Map<Integer, Map<Theatre, List<Show>>> movieVsTheatreShows = catalog.current().cityVsMovieVsTheatreShows.get(city);
+        if(movieVsTheatreShows == null) {
+            return Collections.emptyMap();
+        }
+        Map<Theatre, List<Show>> theatreVsShows = movieVsTheatreShows.get(movie.getMovieId());
+        return theatreVsShows == null ? Collections.emptyMap() : theatreVsShows;
+    }
 
-        Map<Theatre, List<Show>> theatreVsShows = new HashMap<>();
+    //every show of this movie in all cities, earliest first; read only, from the published catalog
+    List<Show> getShowsByStartTime(Movie movie) {
+        List<Show> shows = catalog.current().movieVsShows.get(movie.getMovieId());
+        return shows == null ? Collections.emptyList() : shows;
+    }
 
-        List<Theatre> theatres = cityVsTheatre.get(city);
+    //waits until every theatre and show added so far is visible to the lookups
+    void awaitCatalog() {
+        catalog.awaitFresh();
+    }
 
-        //filter the theatres which run this movie
+    private synchronized Catalog buildCatalog() {
+        return new Catalog(this);
+    }
 
-        for(Theatre theatre : theatres) {
+    private void indexShow(Theatre theatre, City city, Show show) {
 
-            List<Show> givenMovieShows = new ArrayList<>();
-            List<Show> shows = theatre.getShows();
+        int movieId = show.getMovie().getMovieId();
+        Map<Theatre, List<Show>> theatreVsShows = cityVsMovieVsTheatreShows
+                .computeIfAbsent(city, c -> new HashMap<>())
+                .computeIfAbsent(movieId, id -> new LinkedHashMap<>());
+        insertByStartTime(theatreVsShows.computeIfAbsent(theatre, t -> new ArrayList<>()), show);
+        insertByStartTime(movieVsShows.computeIfAbsent(movieId, id -> new ArrayList<>()), show);
+    }
 
-            for(Show show : shows) {
-                if(show.movie.getMovieId() == movie.getMovieId()) {
-                    givenMovieShows.add(show);
-                }
-            }
-            if(!givenMovieShows.isEmpty()) {
-                theatreVsShows.put(theatre, givenMovieShows);
+    //keeps the list sorted, shows with the same start time stay in the order they were added
+    private static void insertByStartTime(List<Show> shows, Show show) {
+        int low = 0;
+        int high = shows.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (shows.get(mid).getShowStartTime() <= show.getShowStartTime()) {
+                low = mid + 1;
+            } else {
+                high = mid;
             }
         }
-
-        return theatreVsShows;
+        shows.add(low, show);
     }
 }
@@ -0,0 +1,307 @@
+package LowLevelDesign.DesignDataStructures;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+/**
+ * Thread safe sibling of MyHashMap.
+ * The map is split into segments, each one a small chained hash table guarded by its own lock,
+ * so writers only contend when they hit the same segment. Reads take no lock at all:
+ * bins are published through an AtomicReferenceArray and values / next links are volatile.
+ * Like ConcurrentHashMap, null keys and null values are not allowed.
+ */
+public class ConcurrentMyHashMap<K,V> {
+
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 64;
+    private static final int MAX_SEGMENTS = 1 << 16;
+    private static final int MIN_SEGMENT_TABLE_SIZE = 2;
+    private static final int MAXIMUM_SEGMENT_CAPACITY = 1 << 30;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    final Segment<K,V>[] segments;
+    final int segmentShift;
+    final int segmentMask;
+
+
+    public ConcurrentMyHashMap() {
+        this(16, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    public ConcurrentMyHashMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ConcurrentMyHashMap(int initialCapacity, int concurrencyLevel) {
+        if (initialCapacity < 0 || concurrencyLevel <= 0) {
+            throw new IllegalArgumentException();
+        }
+        int segmentCount = 1;
+        int shift = 0;
+        while (segmentCount < Math.min(concurrencyLevel, MAX_SEGMENTS)) {
+            segmentCount <<= 1;
+            shift++;
+        }
+        segmentShift = 32 - shift;
+        segmentMask = segmentCount - 1;
+
+        int perSegment = MIN_SEGMENT_TABLE_SIZE;
+        while (perSegment * segmentCount < initialCapacity) {
+            perSegment <<= 1;
+        }
+        segments = (Segment<K,V>[]) new Segment<?,?>[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(perSegment);
+        }
+    }
+
+    static final class Node<K,V> {
+
+        final int hash;
+        final K key;
+        volatile V value;
+        volatile Node<K,V> next;
+
+        Node(int hash, K key, V value, Node<K,V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    //one lock per segment, extending ReentrantLock saves an object per segment
+    static final class Segment<K,V> extends ReentrantLock {
+
+        private static final long serialVersionUID = 1L;
+
+        volatile AtomicReferenceArray<Node<K,V>> table;
+        volatile int count;
+        int threshold;
+
+        Segment(int capacity) {
+            setTable(new AtomicReferenceArray<>(capacity));
+        }
+
+        private void setTable(AtomicReferenceArray<Node<K,V>> newTable) {
+            threshold = (int) (newTable.length() * LOAD_FACTOR);
+            table = newTable;
+        }
+
+        //lock free read path
+        Node<K,V> find(int hash, Object key) {
+            AtomicReferenceArray<Node<K,V>> tab = table;
+            Node<K,V> node = tab.get(hash & (tab.length() - 1));
+            while (node != null) {
+                if (node.hash == hash && key.equals(node.key)) {
+                    return node;
+                }
+                node = node.next;
+            }
+            return null;
+        }
+
+        //caller must hold the lock
+        void insert(int hash, K key, V value) {
+            if (count + 1 > threshold) {
+                rehash();
+            }
+            AtomicReferenceArray<Node<K,V>> tab = table;
+            int index = hash & (tab.length() - 1);
+            tab.set(index, new Node<>(hash, key, value, tab.get(index)));
+            count = count + 1;
+        }
+
+        //caller must hold the lock; readers already walking this chain keep a consistent view through node.next
+        boolean unlink(int hash, Node<K,V> target) {
+            AtomicReferenceArray<Node<K,V>> tab = table;
+            int index = hash & (tab.length() - 1);
+            Node<K,V> node = tab.get(index);
+            Node<K,V> previous = null;
+            while (node != null) {
+                if (node == target) {
+                    if (previous == null) {
+                        tab.set(index, node.next);
+                    } else {
+                        previous.next = node.next;
+                    }
+                    count = count - 1;
+                    return true;
+                }
+                previous = node;
+                node = node.next;
+            }
+            return false;
+        }
+
+        //copies nodes instead of relinking them, so a concurrent reader of the old table never sees a half moved chain
+        private void rehash() {
+            AtomicReferenceArray<Node<K,V>> oldTable = table;
+            int oldCapacity = oldTable.length();
+            if (oldCapacity >= MAXIMUM_SEGMENT_CAPACITY) {
+                return;
+            }
+            AtomicReferenceArray<Node<K,V>> newTable = new AtomicReferenceArray<>(oldCapacity << 1);
+            int mask = newTable.length() - 1;
+            for (int i = 0; i < oldCapacity; i++) {
+                for (Node<K,V> node = oldTable.get(i); node != null; node = node.next) {
+                    int index = node.hash & mask;
+                    newTable.set(index, new Node<>(node.hash, node.key, node.value, newTable.get(index)));
+                }
+            }
+            setTable(newTable);
+        }
+    }
+
+    static int hash(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        //extra multiply so both the segment bits (high) and the bucket bits (low) are well mixed
+        h *= 0x85EBCA6B;
+        return h ^ (h >>> 13);
+    }
+
+    private Segment<K,V> segmentFor(int hash) {
+        return segments[(hash >>> segmentShift) & segmentMask];
+    }
+
+
+    public V get(K key) {
+        int hash = hash(key);
+        Node<K,V> node = segmentFor(hash).find(hash, key);
+        return node == null ? null : node.value;
+    }
+
+    public boolean containsKey(K key) {
+        int hash = hash(key);
+        return segmentFor(hash).find(hash, key) != null;
+    }
+
+    public V put(K key, V value) {
+        return doPut(key, value, false);
+    }
+
+    public V putIfAbsent(K key, V value) {
+        return doPut(key, value, true);
+    }
+
+    private V doPut(K key, V value, boolean onlyIfAbsent) {
+        checkNotNull(value);
+        int hash = hash(key);
+        Segment<K,V> segment = segmentFor(hash);
+        segment.lock();
+        try {
+            Node<K,V> node = segment.find(hash, key);
+            if (node != null) {
+                V previous = node.value;
+                if (!onlyIfAbsent) {
+                    node.value = value;
+                }
+                return previous;
+            }
+            segment.insert(hash, key, value);
+            return null;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    public V remove(K key) {
+        int hash = hash(key);
+        Segment<K,V> segment = segmentFor(hash);
+        segment.lock();
+        try {
+            Node<K,V> node = segment.find(hash, key);
+            if (node == null) {
+                return null;
+            }
+            segment.unlink(hash, node);
+            return node.value;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    //remapping function sees null for an absent key; returning null removes the mapping
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        int hash = hash(key);
+        Segment<K,V> segment = segmentFor(hash);
+        segment.lock();
+        try {
+            Node<K,V> node = segment.find(hash, key);
+            V oldValue = node == null ? null : node.value;
+            V newValue = remappingFunction.apply(key, oldValue);
+            if (newValue == null) {
+                if (node != null) {
+                    segment.unlink(hash, node);
+                }
+            } else if (node != null) {
+                node.value = newValue;
+            } else {
+                segment.insert(hash, key, newValue);
+            }
+            return newValue;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    //stores value if absent, otherwise combines it with the current one; a null result removes the mapping
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        checkNotNull(value);
+        int hash = hash(key);
+        Segment<K,V> segment = segmentFor(hash);
+        segment.lock();
+        try {
+            Node<K,V> node = segment.find(hash, key);
+            if (node == null) {
+                segment.insert(hash, key, value);
+                return value;
+            }
+            V newValue = remappingFunction.apply(node.value, value);
+            if (newValue == null) {
+                segment.unlink(hash, node);
+            } else {
+                node.value = newValue;
+            }
+            return newValue;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    //not a point in time snapshot while writers are active, same as ConcurrentHashMap
+    public int size() {
+        long sum = 0;
+        for (Segment<K,V> segment : segments) {
+            sum += segment.count;
+        }
+        return sum > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) sum;
+    }
+
+    public boolean isEmpty() {
+        for (Segment<K,V> segment : segments) {
+            if (segment.count != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void checkNotNull(Object value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+    }
+
+    public static void main(String args[]) {
+
+        ConcurrentMyHashMap<String, Integer> seatHolds = new ConcurrentMyHashMap<>();
+        seatHolds.put("show1-seat30", 1);
+        System.out.println(seatHolds.putIfAbsent("show1-seat30", 2));
+        System.out.println(seatHolds.merge("show1-seat30", 10, Integer::sum));
+        System.out.println(seatHolds.compute("show1-seat31", (k, v) -> v == null ? 1 : v + 1));
+        System.out.println(seatHolds.compute("show1-seat31", (k, v) -> null) + " size: " + seatHolds.size());
+    }
+}
@@ -0,0 +1,70 @@
+package LowLevelDesign.DesignDataStructures;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writer scalability check for ConcurrentMyHashMap: every thread merges counters into random keys,
+ * throughput is reported for 1..16 threads next to a map guarded by a single global lock.
+ * Run with: java LowLevelDesign.DesignDataStructures.ConcurrentMyHashMapBenchmark [opsPerThread] [keySpace]
+ */
+public class ConcurrentMyHashMapBenchmark {
+
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16};
+
+    interface Workload {
+        void write(int key);
+    }
+
+    public static void main(String args[]) throws InterruptedException {
+
+        int opsPerThread = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int keySpace = args.length > 1 ? Integer.parseInt(args[1]) : 1 << 20;
+
+        System.out.printf("%-8s %18s %10s %18s%n", "threads", "striped ops/s", "speedup", "global lock ops/s");
+        double baseline = 0;
+        for (int threads : THREAD_COUNTS) {
+
+            ConcurrentMyHashMap<Integer, Integer> striped = new ConcurrentMyHashMap<>(keySpace);
+            double stripedOps = run(threads, opsPerThread, keySpace, key -> striped.merge(key, 1, Integer::sum));
+
+            Map<Integer, Integer> synchronizedMap = Collections.synchronizedMap(new HashMap<>(keySpace));
+            double globalOps = run(threads, opsPerThread, keySpace, key -> synchronizedMap.merge(key, 1, Integer::sum));
+
+            if (threads == 1) {
+                baseline = stripedOps;
+            }
+            System.out.printf("%-8d %,18.0f %9.2fx %,18.0f%n", threads, stripedOps, stripedOps / baseline, globalOps);
+        }
+    }
+
+    private static double run(int threads, int opsPerThread, int keySpace, Workload workload) throws InterruptedException {
+
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                    for (int i = 0; i < opsPerThread; i++) {
+                        workload.write(random.nextInt(keySpace));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            worker.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        return (double) threads * opsPerThread * 1_000_000_000L / elapsed;
+    }
+}
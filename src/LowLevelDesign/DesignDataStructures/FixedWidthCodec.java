@@ -0,0 +1,51 @@
+package LowLevelDesign.DesignDataStructures;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes a key or value into exactly width() bytes, so off heap maps can lay records out in fixed size slots.
+ * Implementations must use absolute ByteBuffer get/put at the given offset and must not move the buffer position.
+ */
+public interface FixedWidthCodec<T> {
+
+    int width();
+
+    void write(ByteBuffer buffer, int offset, T value);
+
+    T read(ByteBuffer buffer, int offset);
+
+
+    FixedWidthCodec<Integer> INT = new FixedWidthCodec<>() {
+        @Override
+        public int width() {
+            return Integer.BYTES;
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, int offset, Integer value) {
+            buffer.putInt(offset, value);
+        }
+
+        @Override
+        public Integer read(ByteBuffer buffer, int offset) {
+            return buffer.getInt(offset);
+        }
+    };
+
+    FixedWidthCodec<Long> LONG = new FixedWidthCodec<>() {
+        @Override
+        public int width() {
+            return Long.BYTES;
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, int offset, Long value) {
+            buffer.putLong(offset, value);
+        }
+
+        @Override
+        public Long read(ByteBuffer buffer, int offset) {
+            return buffer.getLong(offset);
+        }
+    };
+}
@@ -0,0 +1,77 @@
+package LowLevelDesign.DesignDataStructures;
+
+/**
+ * Count-min sketch of 4 bit counters used by the TinyLFU admission policy of MyCache.
+ * Sixteen counters are packed in every long; each key touches one counter in each of four rows.
+ * Once sampleSize increments have been seen, all counters are halved, so the popularity of old keys fades.
+ */
+final class FrequencySketch {
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long[] SEEDS = {
+            0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(long maximumSize) {
+        int size = (int) Math.min(Math.max(maximumSize, 16), 1 << 26);
+        table = new long[Integer.highestOneBit(size - 1) << 1];
+        tableMask = table.length - 1;
+        sampleSize = (int) Math.min(10L * size, Integer.MAX_VALUE);
+    }
+
+    //estimated number of recent accesses, between 0 and 15
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = Integer.MAX_VALUE;
+        for (int row = 0; row < 4; row++) {
+            int index = indexOf(hash, row);
+            int shift = counterShift(hash, row);
+            frequency = Math.min(frequency, (int) ((table[index] >>> shift) & 0xFL));
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < 4; row++) {
+            int index = indexOf(hash, row);
+            int shift = counterShift(hash, row);
+            if (((table[index] >>> shift) & 0xFL) != 0xFL) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions >>>= 1;
+    }
+
+    private int indexOf(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+
+    //which of the 16 nibbles of the long this row uses
+    private static int counterShift(int hash, int row) {
+        return (((hash >>> (row << 3)) & 3) << 2 | row) << 2;
+    }
+
+    private static int spread(int h) {
+        h = ((h >>> 16) ^ h) * 0x45D9F3B;
+        h = ((h >>> 16) ^ h) * 0x45D9F3B;
+        return (h >>> 16) ^ h;
+    }
+}
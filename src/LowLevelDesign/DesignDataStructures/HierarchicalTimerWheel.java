@@ -0,0 +1,201 @@
+package LowLevelDesign.DesignDataStructures;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Timer for very many deadlines, e.g. one per seat hold, without a scheduled task or a heap entry per deadline.
+ * Time is cut in ticks; level 0 has one bucket per tick for the next 64 ticks, level 1 one bucket per 64 ticks
+ * for the next 4096 ticks, and so on. A deadline is put in the bucket of the lowest level that reaches it,
+ * and when a tick reaches a bucket of a higher level its timeouts are moved down to the finer levels.
+ * Adding and cancelling are O(1); advancing costs O(1) per tick plus the timeouts that expire or move down.
+ * Timeouts fire on the first tick at or after their deadline. Thread safe.
+ */
+public class HierarchicalTimerWheel<T> {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+
+    final long tickMillis;
+    //buckets[level][slot] is the head of a circular list
+    final Timeout<T>[][] buckets;
+    long currentTick;
+    int size;
+
+    public static final class Timeout<T> {
+        final T task;
+        final long deadlineMillis;
+        final long deadlineTick;
+        Timeout<T> previous;
+        Timeout<T> next;
+        //null once it has expired or was cancelled
+        volatile HierarchicalTimerWheel<T> wheel;
+
+        Timeout(T task, long deadlineMillis, long deadlineTick, HierarchicalTimerWheel<T> wheel) {
+            this.task = task;
+            this.deadlineMillis = deadlineMillis;
+            this.deadlineTick = deadlineTick;
+            this.wheel = wheel;
+        }
+
+        public T getTask() {
+            return task;
+        }
+
+        public long getDeadlineMillis() {
+            return deadlineMillis;
+        }
+
+        //false if it already expired or was cancelled
+        public boolean cancel() {
+            HierarchicalTimerWheel<T> owner = wheel;
+            return owner != null && owner.cancel(this);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimerWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Illegal tick: " + tickMillis);
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+        this.buckets = (Timeout<T>[][]) new Timeout<?>[LEVELS][WHEEL_SIZE];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                Timeout<T> head = new Timeout<>(null, 0, 0, null);
+                head.previous = head.next = head;
+                buckets[level][slot] = head;
+            }
+        }
+    }
+
+    public synchronized Timeout<T> schedule(T task, long deadlineMillis) {
+        //ceiling, so a timeout never fires before its deadline
+        long deadlineTick = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+        Timeout<T> timeout = new Timeout<>(task, deadlineMillis, deadlineTick, this);
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Moves time forward to nowMillis and hands every task whose deadline has passed to expired.
+     * The tasks are handed over after the wheel's lock is released, so expired may schedule or cancel timeouts itself.
+     */
+    public void advance(long nowMillis, Consumer<? super T> expired) {
+        List<T> due = new ArrayList<>();
+        synchronized (this) {
+            long targetTick = Math.floorDiv(nowMillis, tickMillis);
+            if (size == 0 && targetTick > currentTick) {
+                currentTick = targetTick;
+            }
+            while (currentTick < targetTick) {
+                currentTick++;
+                cascade();
+                Timeout<T> head = buckets[0][(int) (currentTick & WHEEL_MASK)];
+                while (head.next != head) {
+                    Timeout<T> timeout = head.next;
+                    unlink(timeout);
+                    timeout.wheel = null;
+                    size--;
+                    due.add(timeout.task);
+                }
+                if (size == 0) {
+                    currentTick = targetTick;
+                }
+            }
+        }
+        for (T task : due) {
+            expired.accept(task);
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout.wheel != this) {
+            return false;
+        }
+        unlink(timeout);
+        timeout.wheel = null;
+        size--;
+        return true;
+    }
+
+    //at the start of every 64^level ticks, the level's current bucket is spread over the levels below
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            int shift = level * WHEEL_BITS;
+            if ((currentTick & ((1L << shift) - 1)) != 0) {
+                return;
+            }
+            Timeout<T> head = buckets[level][(int) ((currentTick >>> shift) & WHEEL_MASK)];
+            Timeout<T> timeout = head.next;
+            head.previous = head.next = head;
+            while (timeout != head) {
+                Timeout<T> next = timeout.next;
+                place(timeout);
+                timeout = next;
+            }
+        }
+    }
+
+    private void place(Timeout<T> timeout) {
+        long tick = timeout.deadlineTick;
+        if (tick <= currentTick) {
+            //the current tick's bucket has been emptied already, the next tick fires it
+            tick = currentTick + 1;
+        }
+        long delta = tick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << ((level + 1) * WHEEL_BITS)) {
+            level++;
+        }
+        if (delta >= 1L << (LEVELS * WHEEL_BITS)) {
+            //beyond the top level, park it in the furthest bucket, it is placed again when that one cascades
+            tick = currentTick + (1L << (LEVELS * WHEEL_BITS)) - 1;
+        }
+        Timeout<T> head = buckets[level][(int) ((tick >>> (level * WHEEL_BITS)) & WHEEL_MASK)];
+        timeout.previous = head.previous;
+        timeout.next = head;
+        head.previous.next = timeout;
+        head.previous = timeout;
+    }
+
+    private static <T> void unlink(Timeout<T> timeout) {
+        timeout.previous.next = timeout.next;
+        timeout.next.previous = timeout.previous;
+        timeout.previous = timeout.next = null;
+    }
+
+    public static void main(String args[]) {
+
+        //a million holds expiring over the next 10 minutes, the clock is advanced once per second
+        HierarchicalTimerWheel<Long> wheel = new HierarchicalTimerWheel<>(10, 0);
+        for (long i = 0; i < 1_000_000; i++) {
+            wheel.schedule(1 + (i * 7919) % 600_000, 1 + (i * 7919) % 600_000);
+        }
+        Timeout<Long> cancelled = wheel.schedule(5_000L, 5_000);
+        cancelled.cancel();
+
+        long[] fired = new long[1];
+        long[] early = new long[1];
+        for (long now = 0; now <= 600_000; now += 1_000) {
+            long time = now;
+            wheel.advance(now, deadline -> {
+                fired[0]++;
+                if (deadline > time) {
+                    early[0]++;
+                }
+            });
+        }
+        System.out.println("fired: " + fired[0] + ", fired early: " + early[0] + ", left: " + wheel.size()
+                + ", cancel after expiry: " + cancelled.cancel());
+    }
+}
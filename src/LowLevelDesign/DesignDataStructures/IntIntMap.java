@@ -0,0 +1,196 @@
+package LowLevelDesign.DesignDataStructures;
+
+/**
+ * int -> int map over two parallel int arrays with linear probing, no boxing and no per entry object.
+ * Lookups of a missing key return the noEntryValue given at construction (0 by default),
+ * use containsKey when 0 is a legal value.
+ */
+public class IntIntMap {
+
+    private static final int FREE_KEY = 0;
+    private static final int INITIAL_SIZE = 1 << 4;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final float DEFAULT_LOAD_FACTOR = 0.5f;
+
+    int[] keys;
+    int[] values;
+    int mask;
+
+    boolean hasZeroKey;
+    int zeroValue;
+
+    int size;
+    int threshold;
+    final float loadFactor;
+    final int noEntryValue;
+
+    public IntIntMap() {
+        this(INITIAL_SIZE, DEFAULT_LOAD_FACTOR, 0);
+    }
+
+    public IntIntMap(int capacity) {
+        this(capacity, DEFAULT_LOAD_FACTOR, 0);
+    }
+
+    public IntIntMap(int capacity, float loadFactor, int noEntryValue) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Illegal initial capacity: " + capacity);
+        }
+        if (loadFactor <= 0 || loadFactor >= 1) {
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        }
+        this.loadFactor = loadFactor;
+        this.noEntryValue = noEntryValue;
+        allocate(PrimitiveMaps.tableSizeFor(capacity, loadFactor, MAXIMUM_CAPACITY));
+    }
+
+    public int put(int key, int value) {
+        if (key == FREE_KEY) {
+            int previous = hasZeroKey ? zeroValue : noEntryValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return previous;
+        }
+
+        int slot = PrimitiveMaps.mix(key) & mask;
+        int current;
+        while ((current = keys[slot]) != FREE_KEY) {
+            if (current == key) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > threshold) {
+            rehash(keys.length << 1);
+        }
+        return noEntryValue;
+    }
+
+    //adds delta to the current value (noEntryValue when absent) and returns the new value
+    public int addTo(int key, int delta) {
+        if (key == FREE_KEY) {
+            int updated = (hasZeroKey ? zeroValue : noEntryValue) + delta;
+            put(key, updated);
+            return updated;
+        }
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            values[slot] += delta;
+            return values[slot];
+        }
+        int updated = noEntryValue + delta;
+        put(key, updated);
+        return updated;
+    }
+
+    public int get(int key) {
+        if (key == FREE_KEY) {
+            return hasZeroKey ? zeroValue : noEntryValue;
+        }
+        int slot = findSlot(key);
+        return slot < 0 ? noEntryValue : values[slot];
+    }
+
+    public boolean containsKey(int key) {
+        if (key == FREE_KEY) {
+            return hasZeroKey;
+        }
+        return findSlot(key) >= 0;
+    }
+
+    public int remove(int key) {
+        if (key == FREE_KEY) {
+            if (!hasZeroKey) {
+                return noEntryValue;
+            }
+            hasZeroKey = false;
+            size--;
+            return zeroValue;
+        }
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return noEntryValue;
+        }
+        int previous = values[slot];
+        shiftKeysBack(slot);
+        size--;
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private int findSlot(int key) {
+        int slot = PrimitiveMaps.mix(key) & mask;
+        int current;
+        while ((current = keys[slot]) != FREE_KEY) {
+            if (current == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    //backward shift deletion, see IntObjMap
+    private void shiftKeysBack(int slot) {
+        int last;
+        while (true) {
+            last = slot;
+            slot = (slot + 1) & mask;
+            int current;
+            while (true) {
+                if ((current = keys[slot]) == FREE_KEY) {
+                    keys[last] = FREE_KEY;
+                    return;
+                }
+                int home = PrimitiveMaps.mix(current) & mask;
+                if (last <= slot ? (last >= home || home > slot) : (last >= home && home > slot)) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[last] = current;
+            values[last] = values[slot];
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        if (keys.length >= MAXIMUM_CAPACITY) {
+            throw new IllegalStateException("IntIntMap is full");
+        }
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != FREE_KEY) {
+                int slot = PrimitiveMaps.mix(key) & mask;
+                while (keys[slot] != FREE_KEY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * loadFactor);
+    }
+}
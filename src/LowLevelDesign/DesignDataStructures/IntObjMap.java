@@ -0,0 +1,205 @@
+package LowLevelDesign.DesignDataStructures;
+
+/**
+ * int -> Object map for hot id lookups (seat ids, show ids, user ids).
+ * Linear probing over two parallel arrays, so there is no boxing and no Entry object per mapping:
+ * roughly 8 bytes per slot (int key + value reference) instead of an Entry plus a boxed Integer.
+ * Key 0 is used to mark a free slot, a real 0 key is kept on the side.
+ */
+public class IntObjMap<V> {
+
+    private static final int FREE_KEY = 0;
+    private static final int INITIAL_SIZE = 1 << 4;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final float DEFAULT_LOAD_FACTOR = 0.5f;
+
+    int[] keys;
+    Object[] values;
+    int mask;
+
+    boolean hasZeroKey;
+    V zeroValue;
+
+    int size;
+    int threshold;
+    final float loadFactor;
+
+    public IntObjMap() {
+        this(INITIAL_SIZE, DEFAULT_LOAD_FACTOR);
+    }
+
+    public IntObjMap(int capacity) {
+        this(capacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    public IntObjMap(int capacity, float loadFactor) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Illegal initial capacity: " + capacity);
+        }
+        if (loadFactor <= 0 || loadFactor >= 1) {
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        }
+        this.loadFactor = loadFactor;
+        allocate(PrimitiveMaps.tableSizeFor(capacity, loadFactor, MAXIMUM_CAPACITY));
+    }
+
+    public V put(int key, V value) {
+        if (key == FREE_KEY) {
+            V previous = zeroValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return previous;
+        }
+
+        int slot = PrimitiveMaps.mix(key) & mask;
+        int current;
+        while ((current = keys[slot]) != FREE_KEY) {
+            if (current == key) {
+                V previous = valueAt(slot);
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > threshold) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    public V get(int key) {
+        if (key == FREE_KEY) {
+            return zeroValue;
+        }
+        int slot = PrimitiveMaps.mix(key) & mask;
+        int current;
+        while ((current = keys[slot]) != FREE_KEY) {
+            if (current == key) {
+                return valueAt(slot);
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    public boolean containsKey(int key) {
+        if (key == FREE_KEY) {
+            return hasZeroKey;
+        }
+        return findSlot(key) >= 0;
+    }
+
+    public V remove(int key) {
+        if (key == FREE_KEY) {
+            if (!hasZeroKey) {
+                return null;
+            }
+            V previous = zeroValue;
+            hasZeroKey = false;
+            zeroValue = null;
+            size--;
+            return previous;
+        }
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return null;
+        }
+        V previous = valueAt(slot);
+        shiftKeysBack(slot);
+        size--;
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private int findSlot(int key) {
+        int slot = PrimitiveMaps.mix(key) & mask;
+        int current;
+        while ((current = keys[slot]) != FREE_KEY) {
+            if (current == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    //backward shift deletion: pull later entries of the probe run into the hole, so no tombstones are needed
+    private void shiftKeysBack(int slot) {
+        int last;
+        while (true) {
+            last = slot;
+            slot = (slot + 1) & mask;
+            int current;
+            while (true) {
+                if ((current = keys[slot]) == FREE_KEY) {
+                    keys[last] = FREE_KEY;
+                    values[last] = null;
+                    return;
+                }
+                int home = PrimitiveMaps.mix(current) & mask;
+                //move it only if its home slot is not between the hole and its current position
+                if (last <= slot ? (last >= home || home > slot) : (last >= home && home > slot)) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[last] = current;
+            values[last] = values[slot];
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        if (keys.length >= MAXIMUM_CAPACITY) {
+            throw new IllegalStateException("IntObjMap is full");
+        }
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != FREE_KEY) {
+                int slot = PrimitiveMaps.mix(key) & mask;
+                while (keys[slot] != FREE_KEY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * loadFactor);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int slot) {
+        return (V) values[slot];
+    }
+
+    public static void main(String args[]) {
+
+        IntObjMap<String> seatIdVsSeat = new IntObjMap<>();
+        for (int i = 0; i < 100; i++) {
+            seatIdVsSeat.put(i, "seat-" + i);
+        }
+        seatIdVsSeat.remove(30);
+        System.out.println(seatIdVsSeat.get(0) + " " + seatIdVsSeat.get(30) + " " + seatIdVsSeat.get(99)
+                + " size: " + seatIdVsSeat.size());
+    }
+}
@@ -0,0 +1,445 @@
+package LowLevelDesign.DesignDataStructures;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * File backed MyHashMap: the table itself lives in a memory mapped file, so a restarted process
+ * can open(path) and serve reads straight away, nothing is rehydrated into the heap.
+ *
+ * File layout: [header 64 bytes][write ahead record][slots...]
+ * Every slot is [state 1 byte][hash 4 bytes][key][value][crc32 4 bytes].
+ * A put first writes the new slot image into the write ahead record, then into the slot, then clears the record.
+ * If the process dies half way, open() redoes the pending record, and each read re-checks the slot crc.
+ * With syncEveryWrite the file is forced to disk at each step, which also covers power loss; without it
+ * writes sit in the page cache and survive a process crash only.
+ *
+ * The capacity is fixed when the file is created (open addressing, linear probing).
+ * A remove first leaves a tombstone, then shifts the later entries of the probe run back into it one write ahead
+ * record at a time, each moving an entry and leaving a tombstone where it was, and finally frees the last one.
+ * So lookups stay correct after a crash at any step and no tombstones pile up under put/remove churn;
+ * one left by a crash is reused by the next put into its run.
+ * Not thread safe.
+ */
+public class MappedMyHashMap<K,V> implements AutoCloseable {
+
+    private static final long MAGIC = 0x4D794D6170466C31L; //"MyMapFl1"
+    private static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 8;
+    private static final int KEY_WIDTH_OFFSET = 12;
+    private static final int VALUE_WIDTH_OFFSET = 16;
+    private static final int CAPACITY_OFFSET = 20;
+    private static final int SIZE_OFFSET = 28;
+    private static final int TOMBSTONES_OFFSET = 36;
+
+    //write ahead record: [marker int][slot long][vacated slot long][size long][tombstones long][slot image][crc int]
+    private static final int WAL_OFFSET = HEADER_SIZE;
+    private static final int WAL_SLOT_OFFSET = 4;
+    private static final int WAL_VACATED_OFFSET = 12;
+    private static final int WAL_SIZE_OFFSET = 20;
+    private static final int WAL_TOMBSTONES_OFFSET = 28;
+    private static final int WAL_IMAGE_OFFSET = 36;
+    private static final long NO_SLOT = -1;
+    private static final int WAL_EMPTY = 0;
+    private static final int WAL_PENDING = 1;
+
+    private static final byte FREE = 0;
+    private static final byte FULL = 1;
+    private static final byte DELETED = 2;
+    private static final int HASH_OFFSET = 1;
+    private static final int KEY_OFFSET = 5;
+
+    private static final float MAX_LOAD_FACTOR = 0.75f;
+
+    final Path path;
+    final FixedWidthCodec<K> keyCodec;
+    final FixedWidthCodec<V> valueCodec;
+    final boolean syncEveryWrite;
+    final int keyWidth;
+    final int valueWidth;
+    final int slotSize;
+    final int slotsOffset;
+    final long capacity;
+    final long mask;
+
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    //slot image being built or verified, plus a heap view over it for the codecs
+    private final byte[] image;
+    private final ByteBuffer imageBuffer;
+    private final CRC32 crc = new CRC32();
+
+    long size;
+    long tombstones;
+    boolean closed;
+
+
+    private MappedMyHashMap(Path path, FileChannel channel, FixedWidthCodec<K> keyCodec, FixedWidthCodec<V> valueCodec,
+                            long capacity, boolean syncEveryWrite) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.syncEveryWrite = syncEveryWrite;
+        this.keyWidth = keyCodec.width();
+        this.valueWidth = valueCodec.width();
+        this.slotSize = KEY_OFFSET + keyWidth + valueWidth + Integer.BYTES;
+        this.slotsOffset = align(WAL_OFFSET + WAL_IMAGE_OFFSET + slotSize + Integer.BYTES);
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.image = new byte[slotSize];
+        this.imageBuffer = ByteBuffer.wrap(image);
+
+        long fileSize = slotsOffset + capacity * slotSize;
+        if (fileSize > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IllegalArgumentException("capacity " + capacity + " does not fit in a single 2 GB mapping");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+    }
+
+    //creates (or truncates) the file for a table of at least expectedSize entries
+    public static <K,V> MappedMyHashMap<K,V> create(Path path, FixedWidthCodec<K> keyCodec, FixedWidthCodec<V> valueCodec,
+                                                    long expectedSize, boolean syncEveryWrite) throws IOException {
+        long capacity = 2;
+        while (capacity * MAX_LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedMyHashMap<K,V> map = new MappedMyHashMap<>(path, channel, keyCodec, valueCodec, capacity, syncEveryWrite);
+        map.buffer.putInt(VERSION_OFFSET, VERSION);
+        map.buffer.putInt(KEY_WIDTH_OFFSET, map.keyWidth);
+        map.buffer.putInt(VALUE_WIDTH_OFFSET, map.valueWidth);
+        map.buffer.putLong(CAPACITY_OFFSET, capacity);
+        map.buffer.putLong(SIZE_OFFSET, 0);
+        map.buffer.putLong(TOMBSTONES_OFFSET, 0);
+        map.buffer.putInt(WAL_OFFSET, WAL_EMPTY);
+        //magic goes last, a file without it was never fully created
+        map.buffer.force();
+        map.buffer.putLong(MAGIC_OFFSET, MAGIC);
+        map.buffer.force();
+        return map;
+    }
+
+    //maps an existing file and finishes a write that was cut off by a crash
+    public static <K,V> MappedMyHashMap<K,V> open(Path path, FixedWidthCodec<K> keyCodec, FixedWidthCodec<V> valueCodec,
+                                                  boolean syncEveryWrite) throws IOException {
+        if (!Files.exists(path)) {
+            throw new IOException("No map file at " + path);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header) >= 0) {
+            //keep reading until the header is complete or the file ends
+        }
+        if (header.position() < HEADER_SIZE || header.getLong(MAGIC_OFFSET) != MAGIC
+                || header.getInt(VERSION_OFFSET) != VERSION) {
+            channel.close();
+            throw new IOException(path + " is not a MappedMyHashMap file");
+        }
+        if (header.getInt(KEY_WIDTH_OFFSET) != keyCodec.width() || header.getInt(VALUE_WIDTH_OFFSET) != valueCodec.width()) {
+            channel.close();
+            throw new IOException("Codec widths do not match the layout of " + path);
+        }
+        MappedMyHashMap<K,V> map = new MappedMyHashMap<>(path, channel, keyCodec, valueCodec,
+                header.getLong(CAPACITY_OFFSET), syncEveryWrite);
+        map.recover();
+        return map;
+    }
+
+
+    public void put(K key, V value) {
+        checkOpen();
+        int hash = hash(key);
+        encodeKey(key);
+        long slot = findSlot(hash);
+        long newSize = size;
+        long newTombstones = tombstones;
+        if (slot < 0) {
+            if (size + tombstones + 1 > capacity * MAX_LOAD_FACTOR) {
+                throw new IllegalStateException("MappedMyHashMap " + path + " is full, create it with a larger size");
+            }
+            slot = hash & mask;
+            byte state;
+            while ((state = buffer.get(slotOffset(slot))) == FULL) {
+                slot = (slot + 1) & mask;
+            }
+            newSize++;
+            if (state == DELETED) {
+                newTombstones--;
+            }
+        }
+        image[0] = FULL;
+        imageBuffer.putInt(HASH_OFFSET, hash);
+        valueCodec.write(imageBuffer, KEY_OFFSET + keyWidth, value);
+        sealImage();
+        writeSlot(slot, NO_SLOT, newSize, newTombstones);
+    }
+
+    public V get(K key) {
+        checkOpen();
+        int hash = hash(key);
+        encodeKey(key);
+        long slot = findSlot(hash);
+        if (slot < 0) {
+            return null;
+        }
+        int offset = slotOffset(slot);
+        buffer.get(offset, image);
+        if (!imageIsValid()) {
+            throw new IllegalStateException("Corrupt slot " + slot + " in " + path);
+        }
+        return valueCodec.read(imageBuffer, KEY_OFFSET + keyWidth);
+    }
+
+    public boolean containsKey(K key) {
+        checkOpen();
+        int hash = hash(key);
+        encodeKey(key);
+        return findSlot(hash) >= 0;
+    }
+
+    //leaves a tombstone so probe runs through this slot stay intact, then closes the gap
+    public boolean remove(K key) {
+        checkOpen();
+        int hash = hash(key);
+        encodeKey(key);
+        long slot = findSlot(hash);
+        if (slot < 0) {
+            return false;
+        }
+        buffer.get(slotOffset(slot), image);
+        image[0] = DELETED;
+        sealImage();
+        writeSlot(slot, NO_SLOT, size - 1, tombstones + 1);
+        closeGap(slot);
+        return true;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public long tombstones() {
+        return tombstones;
+    }
+
+    public long fileSize() {
+        return slotsOffset + capacity * slotSize;
+    }
+
+    public void flush() {
+        checkOpen();
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        buffer.force();
+        closed = true;
+        buffer = null;
+        channel.close();
+    }
+
+    //redo a write ahead record that made it to the file; a torn one never touched its slot, so it is dropped
+    private void recover() {
+        if (buffer.getInt(WAL_OFFSET) == WAL_PENDING) {
+            buffer.get(WAL_OFFSET + WAL_IMAGE_OFFSET, image);
+            int expected = buffer.getInt(WAL_OFFSET + WAL_IMAGE_OFFSET + slotSize);
+            if (walChecksum() == expected && imageIsValid()) {
+                long slot = buffer.getLong(WAL_OFFSET + WAL_SLOT_OFFSET);
+                long vacated = buffer.getLong(WAL_OFFSET + WAL_VACATED_OFFSET);
+                buffer.put(slotOffset(slot), image);
+                if (vacated != NO_SLOT) {
+                    buffer.put(slotOffset(vacated), DELETED);
+                }
+                buffer.putLong(SIZE_OFFSET, buffer.getLong(WAL_OFFSET + WAL_SIZE_OFFSET));
+                buffer.putLong(TOMBSTONES_OFFSET, buffer.getLong(WAL_OFFSET + WAL_TOMBSTONES_OFFSET));
+                buffer.force();
+            }
+            buffer.putInt(WAL_OFFSET, WAL_EMPTY);
+            buffer.force();
+        }
+        size = buffer.getLong(SIZE_OFFSET);
+        tombstones = buffer.getLong(TOMBSTONES_OFFSET);
+    }
+
+    /**
+     * Backward shift deletion: hole holds a tombstone. Every later entry of the probe run that may sit at hole
+     * (its home is not between hole and where it is now) moves there, leaving a tombstone behind that becomes
+     * the new hole; at the end of the run the hole is freed.
+     */
+    private void closeGap(long hole) {
+        long slot = (hole + 1) & mask;
+        byte state;
+        while ((state = buffer.get(slotOffset(slot))) != FREE) {
+            if (state == FULL) {
+                int offset = slotOffset(slot);
+                long home = buffer.getInt(offset + HASH_OFFSET) & mask;
+                if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                    buffer.get(offset, image);
+                    writeSlot(hole, slot, size, tombstones);
+                    hole = slot;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+        buffer.get(slotOffset(hole), image);
+        image[0] = FREE;
+        sealImage();
+        writeSlot(hole, NO_SLOT, size, tombstones - 1);
+    }
+
+    //write ahead record first, then the slot (and the tombstone at vacated) and header, then clear the record
+    private void writeSlot(long slot, long vacated, long newSize, long newTombstones) {
+        buffer.putLong(WAL_OFFSET + WAL_SLOT_OFFSET, slot);
+        buffer.putLong(WAL_OFFSET + WAL_VACATED_OFFSET, vacated);
+        buffer.putLong(WAL_OFFSET + WAL_SIZE_OFFSET, newSize);
+        buffer.putLong(WAL_OFFSET + WAL_TOMBSTONES_OFFSET, newTombstones);
+        buffer.put(WAL_OFFSET + WAL_IMAGE_OFFSET, image);
+        buffer.putInt(WAL_OFFSET + WAL_IMAGE_OFFSET + slotSize, walChecksum());
+        sync();
+        buffer.putInt(WAL_OFFSET, WAL_PENDING);
+        sync();
+
+        buffer.put(slotOffset(slot), image);
+        if (vacated != NO_SLOT) {
+            buffer.put(slotOffset(vacated), DELETED);
+        }
+        buffer.putLong(SIZE_OFFSET, newSize);
+        buffer.putLong(TOMBSTONES_OFFSET, newTombstones);
+        sync();
+
+        buffer.putInt(WAL_OFFSET, WAL_EMPTY);
+        sync();
+        size = newSize;
+        tombstones = newTombstones;
+    }
+
+    //probes for the key already encoded in image; FREE ends the run, DELETED does not
+    private long findSlot(int hash) {
+        long slot = hash & mask;
+        for (long probes = 0; probes < capacity; probes++) {
+            int offset = slotOffset(slot);
+            byte state = buffer.get(offset);
+            if (state == FREE) {
+                return -1;
+            }
+            if (state == FULL && buffer.getInt(offset + HASH_OFFSET) == hash && keyBytesEqual(offset + KEY_OFFSET)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private boolean keyBytesEqual(int offset) {
+        for (int i = 0; i < keyWidth; i++) {
+            if (buffer.get(offset + i) != image[KEY_OFFSET + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void encodeKey(K key) {
+        keyCodec.write(imageBuffer, KEY_OFFSET, key);
+    }
+
+    private void sealImage() {
+        imageBuffer.putInt(slotSize - Integer.BYTES, slotChecksum());
+    }
+
+    private boolean imageIsValid() {
+        return imageBuffer.getInt(slotSize - Integer.BYTES) == slotChecksum();
+    }
+
+    private int slotChecksum() {
+        crc.reset();
+        crc.update(image, 0, slotSize - Integer.BYTES);
+        return (int) crc.getValue();
+    }
+
+    private int walChecksum() {
+        crc.reset();
+        for (int i = WAL_SLOT_OFFSET; i < WAL_IMAGE_OFFSET; i++) {
+            crc.update(buffer.get(WAL_OFFSET + i));
+        }
+        crc.update(image, 0, slotSize);
+        return (int) crc.getValue();
+    }
+
+    private void sync() {
+        if (syncEveryWrite) {
+            buffer.force();
+        }
+    }
+
+    private int slotOffset(long slot) {
+        return (int) (slotsOffset + slot * slotSize);
+    }
+
+    private static int align(int offset) {
+        return (offset + 63) & ~63;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("MappedMyHashMap is closed");
+        }
+    }
+
+    public static void main(String args[]) throws IOException {
+
+        Path file = Files.createTempFile("balances", ".map");
+
+        try (MappedMyHashMap<Integer, Long> balances = MappedMyHashMap.create(file, FixedWidthCodec.INT, FixedWidthCodec.LONG,
+                100_000, false)) {
+            for (int userId = 0; userId < 100_000; userId++) {
+                balances.put(userId, userId * 100L);
+            }
+            balances.remove(42);
+
+            //churn: a full table that keeps replacing entries never runs out of slots
+            for (int round = 0; round < 500_000; round++) {
+                int userId = round % 100_000;
+                if (userId != 42) {
+                    balances.remove(userId);
+                    balances.put(userId, userId * 100L);
+                }
+            }
+            System.out.println("tombstones after churn: " + balances.tombstones());
+        }
+
+        //a restart maps the same file and reads immediately
+        try (MappedMyHashMap<Integer, Long> balances = MappedMyHashMap.open(file, FixedWidthCodec.INT, FixedWidthCodec.LONG,
+                false)) {
+            System.out.println("size: " + balances.size() + ", balance of 7: " + balances.get(7)
+                    + ", balance of 42: " + balances.get(42) + ", file KB: " + balances.fileSize() / 1024);
+        }
+        Files.delete(file);
+    }
+}
@@ -0,0 +1,461 @@
+package LowLevelDesign.DesignDataStructures;
+
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Size bounded cache with O(1) eviction, indexed by a MyHashMap.
+ *
+ * Two eviction policies:
+ *  - LRU: a single access ordered list, the least recently used entry goes first.
+ *  - TINY_LFU (W-TinyLFU): new entries land in a small LRU window (1% of the capacity). Entries leaving the window
+ *    only enter the main segmented LRU (probation + protected) if a frequency sketch says they are used more often
+ *    than the entry they would push out, so a one-off scan cannot flush the popular entries.
+ *
+ * Capacity is a total weight (every entry weighs 1 unless a weigher is given), entries can expire a fixed time
+ * after they were written, and an eviction listener hears about every entry dropped for size or expiry.
+ * All public methods are synchronized.
+ */
+public class MyCache<K,V> {
+
+    public enum EvictionPolicy {
+        LRU,
+        TINY_LFU
+    }
+
+    public enum RemovalCause {
+        SIZE,
+        EXPIRED,
+        EXPLICIT
+    }
+
+    public interface Weigher<K,V> {
+        int weigh(K key, V value);
+    }
+
+    public interface EvictionListener<K,V> {
+        void onRemoval(K key, V value, RemovalCause cause);
+    }
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    static final class Node<K,V> {
+        final K key;
+        V value;
+        int weight;
+        long writeTime;
+        int queue;
+
+        //access order links (window, probation or protected list)
+        Node<K,V> previous;
+        Node<K,V> next;
+
+        //write order links, oldest write first, so expired entries are found without a scan
+        Node<K,V> previousWrite;
+        Node<K,V> nextWrite;
+
+        Node(K key, V value, int weight, long writeTime) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = writeTime;
+        }
+    }
+
+    //intrusive doubly linked list, head is the eviction end
+    static final class AccessOrderDeque<K,V> {
+        Node<K,V> head;
+        Node<K,V> tail;
+        long weight;
+
+        void addLast(Node<K,V> node) {
+            node.previous = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            weight += node.weight;
+        }
+
+        void remove(Node<K,V> node) {
+            if (node.previous == null) {
+                head = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+            node.previous = node.next = null;
+            weight -= node.weight;
+        }
+
+        void moveToLast(Node<K,V> node) {
+            if (tail != node) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+
+    final MyHashMap<K, Node<K,V>> index;
+    final EvictionPolicy policy;
+    final long maximumWeight;
+    final long windowMaximum;
+    final long protectedMaximum;
+    final long expireAfterWriteNanos;
+    final Weigher<K,V> weigher;
+    final EvictionListener<K,V> evictionListener;
+    final LongSupplier ticker;
+    final FrequencySketch sketch;
+
+    final AccessOrderDeque<K,V> window = new AccessOrderDeque<>();
+    final AccessOrderDeque<K,V> probation = new AccessOrderDeque<>();
+    final AccessOrderDeque<K,V> protectedDeque = new AccessOrderDeque<>();
+    Node<K,V> oldestWrite;
+    Node<K,V> newestWrite;
+
+    long hitCount;
+    long missCount;
+    long evictionCount;
+    long evictionWeight;
+
+    private MyCache(Builder<K,V> builder) {
+        this.policy = builder.policy;
+        this.maximumWeight = builder.maximumWeight;
+        this.expireAfterWriteNanos = builder.expireAfterWriteNanos;
+        this.weigher = builder.weigher;
+        this.evictionListener = builder.evictionListener;
+        this.ticker = builder.ticker;
+        this.index = new MyHashMap<>((int) Math.min(builder.maximumWeight, 1 << 16));
+        if (policy == EvictionPolicy.TINY_LFU) {
+            windowMaximum = Math.max(1, maximumWeight / 100);
+            protectedMaximum = (maximumWeight - windowMaximum) * 80 / 100;
+            sketch = new FrequencySketch(maximumWeight);
+        } else {
+            windowMaximum = maximumWeight;
+            protectedMaximum = 0;
+            sketch = null;
+        }
+    }
+
+    public static <K,V> Builder<K,V> builder() {
+        return new Builder<>();
+    }
+
+    public static class Builder<K,V> {
+
+        EvictionPolicy policy = EvictionPolicy.TINY_LFU;
+        long maximumWeight = -1;
+        long expireAfterWriteNanos = -1;
+        Weigher<K,V> weigher = (key, value) -> 1;
+        EvictionListener<K,V> evictionListener = (key, value, cause) -> { };
+        LongSupplier ticker = System::nanoTime;
+
+        public Builder<K,V> evictionPolicy(EvictionPolicy policy) {
+            this.policy = policy;
+            return this;
+        }
+
+        //maximum number of entries, when no weigher is set
+        public Builder<K,V> maximumSize(long maximumSize) {
+            return maximumWeight(maximumSize);
+        }
+
+        public Builder<K,V> maximumWeight(long maximumWeight) {
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        public Builder<K,V> weigher(Weigher<K,V> weigher) {
+            this.weigher = weigher;
+            return this;
+        }
+
+        public Builder<K,V> expireAfterWriteMillis(long millis) {
+            this.expireAfterWriteNanos = millis * 1_000_000L;
+            return this;
+        }
+
+        public Builder<K,V> evictionListener(EvictionListener<K,V> evictionListener) {
+            this.evictionListener = evictionListener;
+            return this;
+        }
+
+        //nanosecond clock, replaceable so expiry can be driven by hand
+        public Builder<K,V> ticker(LongSupplier ticker) {
+            this.ticker = ticker;
+            return this;
+        }
+
+        public MyCache<K,V> build() {
+            if (maximumWeight <= 0) {
+                throw new IllegalArgumentException("maximumWeight must be set and positive");
+            }
+            return new MyCache<>(this);
+        }
+    }
+
+
+    //null on a miss or when the entry has expired
+    public synchronized V get(K key) {
+        long now = ticker.getAsLong();
+        expireEntries(now);
+        if (sketch != null) {
+            sketch.increment(key);
+        }
+        Node<K,V> node = index.get(key);
+        if (node == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        onAccess(node);
+        return node.value;
+    }
+
+    //value from the cache, or loaded and stored on a miss
+    public synchronized V get(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+        }
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+        long now = ticker.getAsLong();
+        expireEntries(now);
+        int weight = weigher.weigh(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("negative weight for " + key);
+        }
+
+        Node<K,V> node = index.get(key);
+        if (node != null) {
+            dequeOf(node).remove(node);
+            node.value = value;
+            node.weight = weight;
+            dequeOf(node).addLast(node);
+            node.writeTime = now;
+            unlinkWrite(node);
+            linkWrite(node);
+            onAccess(node);
+        } else {
+            if (sketch != null) {
+                sketch.increment(key);
+            }
+            node = new Node<>(key, value, weight, now);
+            node.queue = WINDOW;
+            index.put(key, node);
+            window.addLast(node);
+            linkWrite(node);
+        }
+        evictEntries();
+    }
+
+    public synchronized V invalidate(K key) {
+        Node<K,V> node = index.get(key);
+        if (node == null) {
+            return null;
+        }
+        removeNode(node, RemovalCause.EXPLICIT);
+        return node.value;
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized long weightedSize() {
+        return window.weight + probation.weight + protectedDeque.weight;
+    }
+
+    public synchronized long hitCount() {
+        return hitCount;
+    }
+
+    public synchronized long missCount() {
+        return missCount;
+    }
+
+    public synchronized long evictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized long evictionWeight() {
+        return evictionWeight;
+    }
+
+    public synchronized double hitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "MyCache{policy=" + policy + ", size=" + index.size() + ", weight=" + weightedSize() + "/" + maximumWeight
+                + ", hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount + "}";
+    }
+
+    private void onAccess(Node<K,V> node) {
+        if (node.queue == PROBATION) {
+            //second hit while on probation earns a place in the protected segment
+            probation.remove(node);
+            node.queue = PROTECTED;
+            protectedDeque.addLast(node);
+            while (protectedDeque.weight > protectedMaximum && protectedDeque.head != null) {
+                Node<K,V> demoted = protectedDeque.head;
+                protectedDeque.remove(demoted);
+                demoted.queue = PROBATION;
+                probation.addLast(demoted);
+            }
+        } else {
+            dequeOf(node).moveToLast(node);
+        }
+    }
+
+    private void evictEntries() {
+        if (policy == EvictionPolicy.LRU) {
+            while (window.weight > maximumWeight) {
+                removeNode(window.head, RemovalCause.SIZE);
+            }
+            return;
+        }
+
+        //window overflow moves to probation as candidates
+        while (window.weight > windowMaximum && window.head != null) {
+            Node<K,V> candidate = window.head;
+            window.remove(candidate);
+            candidate.queue = PROBATION;
+            probation.addLast(candidate);
+        }
+
+        //TinyLFU admission: the newest probation entry (candidate) duels the oldest one (victim)
+        while (weightedSize() > maximumWeight) {
+            Node<K,V> victim = probation.head;
+            Node<K,V> candidate = probation.tail;
+            if (victim == null) {
+                Node<K,V> fallback = protectedDeque.head != null ? protectedDeque.head : window.head;
+                removeNode(fallback, RemovalCause.SIZE);
+            } else if (victim == candidate) {
+                removeNode(victim, RemovalCause.SIZE);
+            } else if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                removeNode(victim, RemovalCause.SIZE);
+            } else {
+                removeNode(candidate, RemovalCause.SIZE);
+            }
+        }
+    }
+
+    //writes are ordered by time, so expired entries are always at the front of the write order list
+    private void expireEntries(long now) {
+        if (expireAfterWriteNanos < 0) {
+            return;
+        }
+        while (oldestWrite != null && now - oldestWrite.writeTime >= expireAfterWriteNanos) {
+            removeNode(oldestWrite, RemovalCause.EXPIRED);
+        }
+    }
+
+    private void removeNode(Node<K,V> node, RemovalCause cause) {
+        index.remove(node.key);
+        dequeOf(node).remove(node);
+        unlinkWrite(node);
+        if (cause != RemovalCause.EXPLICIT) {
+            evictionCount++;
+            evictionWeight += node.weight;
+        }
+        evictionListener.onRemoval(node.key, node.value, cause);
+    }
+
+    private AccessOrderDeque<K,V> dequeOf(Node<K,V> node) {
+        switch (node.queue) {
+            case PROBATION:
+                return probation;
+            case PROTECTED:
+                return protectedDeque;
+            default:
+                return window;
+        }
+    }
+
+    private void linkWrite(Node<K,V> node) {
+        node.previousWrite = newestWrite;
+        node.nextWrite = null;
+        if (newestWrite == null) {
+            oldestWrite = node;
+        } else {
+            newestWrite.nextWrite = node;
+        }
+        newestWrite = node;
+    }
+
+    private void unlinkWrite(Node<K,V> node) {
+        if (node.previousWrite == null) {
+            oldestWrite = node.nextWrite;
+        } else {
+            node.previousWrite.nextWrite = node.nextWrite;
+        }
+        if (node.nextWrite == null) {
+            newestWrite = node.previousWrite;
+        } else {
+            node.nextWrite.previousWrite = node.previousWrite;
+        }
+        node.previousWrite = node.nextWrite = null;
+    }
+
+    public static void main(String args[]) {
+
+        long[] clock = {0};
+        int[] expired = {0};
+        MyCache<String, String> showListings = MyCache.<String, String>builder()
+                .evictionPolicy(EvictionPolicy.TINY_LFU)
+                .maximumSize(100)
+                .expireAfterWriteMillis(60_000)
+                .ticker(() -> clock[0])
+                .evictionListener((key, value, cause) -> {
+                    if (cause == RemovalCause.EXPIRED) {
+                        expired[0]++;
+                    }
+                })
+                .build();
+
+        //a few hot keys read over and over, mixed with a long scan of one-off keys
+        for (int round = 0; round < 1_000; round++) {
+            for (int hot = 0; hot < 10; hot++) {
+                showListings.get("Bangalore-movie" + hot, key -> "shows of " + key);
+            }
+            showListings.get("scan-" + round, key -> "shows of " + key);
+        }
+        System.out.println(showListings + " hit rate: " + showListings.hitRate());
+
+        clock[0] += 61_000_000_000L;
+        System.out.println("after expiry: " + showListings.get("Bangalore-movie0") + ", expired: " + expired[0]
+                + ", size: " + showListings.size());
+
+        MyCache<String, String> lru = MyCache.<String, String>builder()
+                .evictionPolicy(EvictionPolicy.LRU)
+                .maximumWeight(20)
+                .weigher((key, value) -> value.length())
+                .build();
+        lru.put("a", "0123456789");
+        lru.put("b", "0123456789");
+        lru.get("a");
+        lru.put("c", "01234");
+        System.out.println("lru keeps a: " + (lru.get("a") != null) + ", evicted b: " + (lru.get("b") == null));
+    }
+}
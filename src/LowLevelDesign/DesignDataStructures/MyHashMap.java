@@ -1,21 +1,64 @@
 package LowLevelDesign.DesignDataStructures;
 
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
 public class MyHashMap<K,V> {
 
     private static final int  INITIAL_SIZE = 1<<4; //16
     private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+    //number of old buckets moved to the new table on every put while a resize is in progress
+    private static final int MIGRATION_STEP = 4;
+
+    //a chain this long is turned into a TreeBin, as long as the table is not tiny (then growing is the better fix)
+    static final int TREEIFY_THRESHOLD = 8;
+    static final int UNTREEIFY_THRESHOLD = 6;
+    static final int MIN_TREEIFY_CAPACITY = 64;
+
+    Entry<K,V>[] hashTable;
+
+    //while resizing, the table we are draining; buckets below transferIndex are already moved
+    Entry<K,V>[] oldTable;
+    int transferIndex;
 
-    Entry[] hashTable;
+    int size;
+    int threshold;
+    final float loadFactor;
 
+    //bumped on every structural change, including bucket migration, so iterators can fail fast
+    int modCount;
 
-    MyHashMap(){
 
-        hashTable= new Entry[INITIAL_SIZE];
+    public MyHashMap(){
+        this(INITIAL_SIZE, DEFAULT_LOAD_FACTOR);
     }
 
-    MyHashMap(int capacity) {
+    public MyHashMap(int capacity) {
+        this(capacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    public MyHashMap(int capacity, float loadFactor) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Illegal initial capacity: " + capacity);
+        }
+        if (loadFactor <= 0 || Float.isNaN(loadFactor)) {
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        }
+        this.loadFactor = loadFactor;
         int tableSize = tableSizeFor(capacity);
-        hashTable= new Entry[tableSize];
+        hashTable = newTable(tableSize);
+        threshold = thresholdFor(tableSize);
     }
 
      final int tableSizeFor(int cap) {
@@ -28,16 +71,30 @@ public class MyHashMap<K,V> {
         return (n < 0) ? 1 : (n >= MAXIMUM_CAPACITY) ? MAXIMUM_CAPACITY : n + 1;
     }
 
+    //same idea as HashMap.hash: fold the high bits into the low bits, since we only look at the low bits of the hash
+    static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    //table length is always a power of two, so masking is a cheap non-negative modulo
+    static int indexFor(int hash, int length) {
+        return hash & (length - 1);
+    }
 
-    class Entry<K,V>{
 
+    static class Entry<K,V> implements Map.Entry<K,V> {
+
+        final int hash;
         K key;
         V value;
-        Entry next;
+        Entry<K,V> next;
 
-        Entry(K k, V v) {
+        Entry(int hash, K k, V v, Entry<K,V> next) {
+            this.hash = hash;
             key = k;
             value = v;
+            this.next = next;
         }
 
 
@@ -53,52 +110,420 @@ public class MyHashMap<K,V> {
             return value;
         }
 
-        public void setValue(V value) {
+        public V setValue(V value) {
+            V previous = this.value;
             this.value = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?,?> other = (Map.Entry<?,?>) o;
+            return Objects.equals(key, other.getKey()) && Objects.equals(value, other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
         }
     }
 
 
     public void put(K key, V value) {
 
-        int hashCode = key.hashCode() % hashTable.length;
-        Entry node = hashTable[hashCode];
+        if (oldTable != null) {
+            migrateBuckets(MIGRATION_STEP);
+        }
 
-        if(node == null) {
+        int hash = hash(key);
 
-            Entry newNode = new Entry(key, value);
-            hashTable[hashCode] = newNode;
-        } else {
-            Entry previousNode = node;
-            while (node != null) {
+        //key may still be sitting in a bucket of the old table that is not migrated yet
+        Entry<K,V> existing = findInOldTable(hash, key);
+        if (existing == null) {
+            existing = findInBin(hashTable[indexFor(hash, hashTable.length)], hash, key);
+        }
+        if (existing != null) {
+            existing.value = value;
+            return;
+        }
 
-                if (node.key == key) {
-                    node.value = value;
-                    return;
-                }
-                previousNode = node;
-                node = node.next;
-            }
-            Entry newNode = new Entry(key,value);
-            previousNode.next = newNode;
+        addToBin(hashTable, hash, key, value, null);
+        modCount++;
+
+        if (++size > threshold) {
+            resize();
         }
     }
 
 
     public V get(K key) {
 
-        int hashCode = key.hashCode() % hashTable.length;
-        Entry node = hashTable[hashCode];
+        int hash = hash(key);
+
+        Entry<K,V> node = findInOldTable(hash, key);
+        if (node == null) {
+            node = findInBin(hashTable[indexFor(hash, hashTable.length)], hash, key);
+        }
+        return node == null ? null : node.value;
+    }
+
+    //returns the removed value, or null if the key was not present
+    public V remove(K key) {
+
+        int hash = hash(key);
+
+        Entry<K,V> removed = null;
+        if (oldTable != null) {
+            int oldIndex = indexFor(hash, oldTable.length);
+            if (oldIndex >= transferIndex) {
+                removed = removeFromBin(oldTable, oldIndex, hash, key);
+            }
+        }
+        if (removed == null) {
+            removed = removeFromBin(hashTable, indexFor(hash, hashTable.length), hash, key);
+        }
+        if (removed == null) {
+            return null;
+        }
+        size--;
+        modCount++;
+        return removed.value;
+    }
+
+    public boolean containsKey(K key) {
+        int hash = hash(key);
+        return findInOldTable(hash, key) != null
+                || findInBin(hashTable[indexFor(hash, hashTable.length)], hash, key) != null;
+    }
+
+    public void putAll(MyHashMap<? extends K, ? extends V> other) {
+        other.forEach(this::put);
+    }
+
+    public void putAll(Map<? extends K, ? extends V> other) {
+        other.forEach(this::put);
+    }
+
+    //visits every mapping in place, nothing is allocated per entry
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        int expectedModCount = modCount;
+        if (oldTable != null) {
+            for (int i = transferIndex; i < oldTable.length; i++) {
+                forEachInBin(oldTable[i], action);
+            }
+        }
+        for (Entry<K,V> bin : hashTable) {
+            forEachInBin(bin, action);
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    private static <K,V> void forEachInBin(Entry<K,V> node, BiConsumer<? super K, ? super V> action) {
+        if (node instanceof TreeBin) {
+            node = ((TreeBin<K,V>) node).first;
+        }
+        for (; node != null; node = node.next) {
+            action.accept(node.key, node.value);
+        }
+    }
+
+    //live views backed by the map; their spliterators split the bucket range in halves for parallel streams
+    public Collection<K> keys() {
+        return new View<>(entry -> entry.key) {
+            @Override
+            @SuppressWarnings("unchecked")
+            public boolean contains(Object o) {
+                return o != null && containsKey((K) o);
+            }
+        };
+    }
+
+    public Collection<V> values() {
+        return new View<>(entry -> entry.value);
+    }
+
+    public Collection<Map.Entry<K,V>> entries() {
+        return new View<>(entry -> entry);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
 
-        while(node != null) {
-            if(node.key.equals(key)) {
-                return (V)node.value;
+    //true while entries are still being moved from the previous table
+    boolean isRehashing() {
+        return oldTable != null;
+    }
+
+    private Entry<K,V> findInOldTable(int hash, K key) {
+        if (oldTable == null) {
+            return null;
+        }
+        int oldIndex = indexFor(hash, oldTable.length);
+        if (oldIndex < transferIndex) {
+            return null;
+        }
+        return findInBin(oldTable[oldIndex], hash, key);
+    }
+
+    private Entry<K,V> findInBin(Entry<K,V> node, int hash, K key) {
+        if (node instanceof TreeBin) {
+            return ((TreeBin<K,V>) node).find(hash, key);
+        }
+        while (node != null) {
+            if (node.hash == hash && (node.key == key || key.equals(node.key))) {
+                return node;
             }
             node = node.next;
         }
         return null;
     }
 
+    private Entry<K,V> removeFromBin(Entry<K,V>[] table, int index, int hash, K key) {
+        Entry<K,V> head = table[index];
+        if (head instanceof TreeBin) {
+            TreeBin<K,V> bin = (TreeBin<K,V>) head;
+            Entry<K,V> node = bin.find(hash, key);
+            if (node == null) {
+                return null;
+            }
+            bin.remove((TreeBin.TreeNode<K,V>) node);
+            if (bin.count <= UNTREEIFY_THRESHOLD) {
+                table[index] = bin.untreeify();
+            }
+            return node;
+        }
+        Entry<K,V> previous = null;
+        for (Entry<K,V> node = head; node != null; previous = node, node = node.next) {
+            if (node.hash == hash && (node.key == key || key.equals(node.key))) {
+                if (previous == null) {
+                    table[index] = node.next;
+                } else {
+                    previous.next = node.next;
+                }
+                node.next = null;
+                return node;
+            }
+        }
+        return null;
+    }
+
+    //links a new mapping into its bucket of table; reuse is an existing plain Entry that can be relinked as is
+    private void addToBin(Entry<K,V>[] table, int hash, K key, V value, Entry<K,V> reuse) {
+        int index = indexFor(hash, table.length);
+        Entry<K,V> head = table[index];
+        if (head instanceof TreeBin) {
+            ((TreeBin<K,V>) head).add(hash, key, value);
+            return;
+        }
+        Entry<K,V> node = reuse != null ? reuse : new Entry<>(hash, key, value, null);
+        node.next = head;
+        table[index] = node;
+
+        if (table.length >= MIN_TREEIFY_CAPACITY && chainLengthAtLeast(node, TREEIFY_THRESHOLD)) {
+            table[index] = TreeBin.treeify(node);
+        }
+    }
+
+    private static boolean chainLengthAtLeast(Entry<?,?> node, int length) {
+        int count = 0;
+        while (node != null && count < length) {
+            count++;
+            node = node.next;
+        }
+        return count >= length;
+    }
+
+    //start a resize; the actual move of entries is spread over the next puts
+    private void resize() {
+        int oldCapacity = hashTable.length;
+        if (oldCapacity >= MAXIMUM_CAPACITY) {
+            threshold = Integer.MAX_VALUE;
+            return;
+        }
+        if (oldTable != null) {
+            //growth outran the migration, finish the pending one before starting another
+            migrateBuckets(oldTable.length);
+        }
+        oldTable = hashTable;
+        transferIndex = 0;
+        int newCapacity = oldCapacity << 1;
+        hashTable = newTable(newCapacity);
+        threshold = thresholdFor(newCapacity);
+    }
+
+    //move up to bucketCount old buckets into the new table, relinking plain entries and rebuilding tree bins
+    private void migrateBuckets(int bucketCount) {
+        modCount++;
+        int oldCapacity = oldTable.length;
+        int end = Math.min(oldCapacity, transferIndex + bucketCount);
+        for (int i = transferIndex; i < end; i++) {
+            Entry<K,V> node = oldTable[i];
+            oldTable[i] = null;
+            if (node instanceof TreeBin) {
+                //the bin splits in two on a doubling, each half becomes a chain again unless it is still long
+                for (Entry<K,V> treeNode = ((TreeBin<K,V>) node).first; treeNode != null; treeNode = treeNode.next) {
+                    addToBin(hashTable, treeNode.hash, treeNode.key, treeNode.value, null);
+                }
+                continue;
+            }
+            while (node != null) {
+                Entry<K,V> next = node.next;
+                addToBin(hashTable, node.hash, node.key, node.value, node);
+                node = next;
+            }
+        }
+        transferIndex = end;
+        if (transferIndex == oldCapacity) {
+            oldTable = null;
+            transferIndex = 0;
+        }
+    }
+
+    private class View<T> extends AbstractCollection<T> {
+
+        final Function<Entry<K,V>, T> projection;
+
+        View(Function<Entry<K,V>, T> projection) {
+            this.projection = projection;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return Spliterators.iterator(spliterator());
+        }
+
+        @Override
+        public Spliterator<T> spliterator() {
+            int oldCount = oldTable == null ? 0 : oldTable.length - transferIndex;
+            return new BinSpliterator<>(projection, 0, oldCount + hashTable.length, size, modCount, true);
+        }
+    }
+
+    /**
+     * Walks buckets [index, fence) of a virtual array made of the not yet migrated part of oldTable followed by
+     * hashTable, so iterating never has to finish a pending rehash first. Elements are handed out straight from
+     * the Entry chains, and trySplit halves the bucket range.
+     */
+    private final class BinSpliterator<T> implements Spliterator<T> {
+
+        final Function<Entry<K,V>, T> projection;
+        final Entry<K,V>[] oldBins = oldTable;
+        final int oldStart = transferIndex;
+        final int oldCount;
+        final Entry<K,V>[] bins = hashTable;
+        final int expectedModCount;
+
+        int index;
+        final int fence;
+        long estimate;
+        boolean exact;
+        Entry<K,V> current;
+
+        BinSpliterator(Function<Entry<K,V>, T> projection, int index, int fence, long estimate, int expectedModCount,
+                       boolean exact) {
+            this.projection = projection;
+            this.oldCount = oldBins == null ? 0 : oldBins.length - oldStart;
+            this.index = index;
+            this.fence = fence;
+            this.estimate = estimate;
+            this.expectedModCount = expectedModCount;
+            this.exact = exact;
+        }
+
+        private Entry<K,V> binAt(int virtualIndex) {
+            Entry<K,V> head = virtualIndex < oldCount ? oldBins[oldStart + virtualIndex] : bins[virtualIndex - oldCount];
+            return head instanceof TreeBin ? ((TreeBin<K,V>) head).first : head;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (current == null && index < fence) {
+                current = binAt(index++);
+            }
+            if (current == null) {
+                return false;
+            }
+            Entry<K,V> node = current;
+            current = node.next;
+            action.accept(projection.apply(node));
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            Entry<K,V> node = current;
+            current = null;
+            while (true) {
+                for (; node != null; node = node.next) {
+                    action.accept(projection.apply(node));
+                }
+                if (index >= fence) {
+                    break;
+                }
+                node = binAt(index++);
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int low = index;
+            int middle = (low + fence) >>> 1;
+            if (middle <= low) {
+                return null;
+            }
+            index = middle;
+            estimate >>>= 1;
+            exact = false;
+            return new BinSpliterator<>(projection, low, middle, estimate, expectedModCount, false);
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return exact ? Spliterator.SIZED : 0;
+        }
+    }
+
+    private int thresholdFor(int capacity) {
+        float t = capacity * loadFactor;
+        return (capacity < MAXIMUM_CAPACITY && t < MAXIMUM_CAPACITY) ? (int) t : Integer.MAX_VALUE;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K,V> Entry<K,V>[] newTable(int capacity) {
+        return (Entry<K,V>[]) new Entry<?,?>[capacity];
+    }
+
     public static void main(String args[]) {
 
         MyHashMap<Integer, String> map = new MyHashMap<>(7);
@@ -116,6 +541,36 @@ public class MyHashMap<K,V> {
         String value = map.get(8);
         System.out.println(value);
 
+        //negative hash codes used to produce a negative bucket index
+        map.put(-42, "negative");
+        System.out.println(map.get(-42));
 
+        MyHashMap<Integer, Integer> bigMap = new MyHashMap<>();
+        for (int i = 0; i < 1_000_000; i++) {
+            bigMap.put(i, i * 2);
+        }
+        System.out.println("size: " + bigMap.size() + ", capacity: " + bigMap.hashTable.length
+                + ", get(777777): " + bigMap.get(777777));
+
+        //"Aa" and "BB" share a hash code, so every key here lands in the same bucket
+        MyHashMap<String, Integer> collidingMap = new MyHashMap<>();
+        String[] parts = {"Aa", "BB"};
+        for (int i = 0; i < 1 << 12; i++) {
+            StringBuilder key = new StringBuilder();
+            for (int bit = 0; bit < 12; bit++) {
+                key.append(parts[(i >>> bit) & 1]);
+            }
+            collidingMap.put(key.toString(), i);
+        }
+        //a new String instance with the same content must update, not duplicate
+        collidingMap.put(new String("AaAaAaAaAaAaAaAaAaAaAaAa"), -1);
+        System.out.println("colliding size: " + collidingMap.size() + ", get: " + collidingMap.get("AaAaAaAaAaAaAaAaAaAaAaAa"));
+
+        //whole map scans straight from the buckets, in parallel on the common fork-join pool
+        long sum = bigMap.values().parallelStream().mapToLong(Integer::longValue).sum();
+        long evenKeys = bigMap.keys().stream().filter(key -> key % 2 == 0).count();
+        long[] total = {0};
+        bigMap.forEach((key, v) -> total[0] += v);
+        System.out.println("sum: " + sum + ", forEach sum: " + total[0] + ", even keys: " + evenKeys);
     }
 }
@@ -0,0 +1,326 @@
+package LowLevelDesign.DesignDataStructures;
+
+import java.nio.ByteBuffer;
+
+/**
+ * MyHashMap for many small fixed size records kept outside the Java heap.
+ * Keys and values are encoded by FixedWidthCodecs into slots of direct ByteBuffers
+ * (open addressing, linear probing), so the heap and GC work stay flat no matter how many entries there are.
+ * Slot layout: [state 1 byte][hash 4 bytes][key][value]. The arena is split in chunks of at most 1 GB.
+ * Not thread safe.
+ */
+public class OffHeapMyHashMap<K,V> implements AutoCloseable {
+
+    private static final byte FREE = 0;
+    private static final byte FULL = 1;
+    private static final int STATE_OFFSET = 0;
+    private static final int HASH_OFFSET = 1;
+    private static final int KEY_OFFSET = 5;
+
+    private static final int MAX_CHUNK_BYTES = 1 << 30;
+    private static final long MAXIMUM_CAPACITY = 1L << 40;
+    private static final float DEFAULT_LOAD_FACTOR = 0.7f;
+
+    final FixedWidthCodec<K> keyCodec;
+    final FixedWidthCodec<V> valueCodec;
+    final int slotSize;
+    final int valueOffset;
+    final float loadFactor;
+
+    //encoded form of the key being looked up, reused across calls
+    private final ByteBuffer scratchKey;
+
+    ByteBuffer[] chunks;
+    int chunkShift;
+    long chunkMask;
+    long capacity;
+    long mask;
+    long size;
+    long threshold;
+    boolean closed;
+
+
+    public OffHeapMyHashMap(FixedWidthCodec<K> keyCodec, FixedWidthCodec<V> valueCodec) {
+        this(keyCodec, valueCodec, 1 << 10, DEFAULT_LOAD_FACTOR);
+    }
+
+    public OffHeapMyHashMap(FixedWidthCodec<K> keyCodec, FixedWidthCodec<V> valueCodec, long expectedSize, float loadFactor) {
+        if (loadFactor <= 0 || loadFactor >= 1) {
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        }
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.loadFactor = loadFactor;
+        this.valueOffset = KEY_OFFSET + keyCodec.width();
+        this.slotSize = valueOffset + valueCodec.width();
+        this.scratchKey = ByteBuffer.allocate(keyCodec.width());
+
+        long slots = 2;
+        while (slots * loadFactor < expectedSize && slots < MAXIMUM_CAPACITY) {
+            slots <<= 1;
+        }
+        allocate(slots);
+    }
+
+
+    public void put(K key, V value) {
+        checkOpen();
+        int hash = hash(key);
+        long slot = findSlot(hash, key);
+        if (slot >= 0) {
+            valueCodec.write(chunkOf(slot), offsetOf(slot) + valueOffset, value);
+            return;
+        }
+        if (size + 1 > threshold) {
+            rehash(capacity << 1);
+        }
+        slot = hash & mask;
+        while (chunkOf(slot).get(offsetOf(slot) + STATE_OFFSET) == FULL) {
+            slot = (slot + 1) & mask;
+        }
+        ByteBuffer chunk = chunkOf(slot);
+        int offset = offsetOf(slot);
+        chunk.put(offset + STATE_OFFSET, FULL);
+        chunk.putInt(offset + HASH_OFFSET, hash);
+        keyCodec.write(chunk, offset + KEY_OFFSET, key);
+        valueCodec.write(chunk, offset + valueOffset, value);
+        size++;
+    }
+
+    public V get(K key) {
+        checkOpen();
+        long slot = findSlot(hash(key), key);
+        return slot < 0 ? null : valueCodec.read(chunkOf(slot), offsetOf(slot) + valueOffset);
+    }
+
+    public boolean containsKey(K key) {
+        checkOpen();
+        return findSlot(hash(key), key) >= 0;
+    }
+
+    public boolean remove(K key) {
+        checkOpen();
+        long slot = findSlot(hash(key), key);
+        if (slot < 0) {
+            return false;
+        }
+        shiftSlotsBack(slot);
+        size--;
+        return true;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    //number of slots in the arena
+    public long capacity() {
+        return capacity;
+    }
+
+    public int slotSize() {
+        return slotSize;
+    }
+
+    //off heap bytes reserved by the arena
+    public long allocatedBytes() {
+        return capacity * slotSize;
+    }
+
+    //off heap bytes actually holding entries
+    public long usedBytes() {
+        return size * slotSize;
+    }
+
+    public double occupancy() {
+        return capacity == 0 ? 0 : (double) size / capacity;
+    }
+
+    /**
+     * Drops the arena. Java 17 has no public way to free a direct buffer on the spot,
+     * the memory goes back once the buffers are collected; the map refuses any further use.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        chunks = null;
+        size = 0;
+    }
+
+    private long findSlot(int hash, K key) {
+        scratchKey.clear();
+        keyCodec.write(scratchKey, 0, key);
+        long slot = hash & mask;
+        while (true) {
+            ByteBuffer chunk = chunkOf(slot);
+            int offset = offsetOf(slot);
+            if (chunk.get(offset + STATE_OFFSET) == FREE) {
+                return -1;
+            }
+            if (chunk.getInt(offset + HASH_OFFSET) == hash && keyBytesEqual(chunk, offset + KEY_OFFSET)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean keyBytesEqual(ByteBuffer chunk, int offset) {
+        int width = scratchKey.capacity();
+        int i = 0;
+        for (; i + Long.BYTES <= width; i += Long.BYTES) {
+            if (chunk.getLong(offset + i) != scratchKey.getLong(i)) {
+                return false;
+            }
+        }
+        for (; i < width; i++) {
+            if (chunk.get(offset + i) != scratchKey.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //backward shift deletion, same scheme as IntObjMap but moving raw slot bytes
+    private void shiftSlotsBack(long slot) {
+        long last;
+        while (true) {
+            last = slot;
+            slot = (slot + 1) & mask;
+            while (true) {
+                ByteBuffer chunk = chunkOf(slot);
+                int offset = offsetOf(slot);
+                if (chunk.get(offset + STATE_OFFSET) == FREE) {
+                    chunkOf(last).put(offsetOf(last) + STATE_OFFSET, FREE);
+                    return;
+                }
+                long home = chunk.getInt(offset + HASH_OFFSET) & mask;
+                if (last <= slot ? (last >= home || home > slot) : (last >= home && home > slot)) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            copySlot(chunkOf(slot), offsetOf(slot), chunkOf(last), offsetOf(last));
+        }
+    }
+
+    private void rehash(long newCapacity) {
+        if (newCapacity > MAXIMUM_CAPACITY) {
+            throw new IllegalStateException("OffHeapMyHashMap is full");
+        }
+        ByteBuffer[] oldChunks = chunks;
+        int oldChunkShift = chunkShift;
+        long oldChunkMask = chunkMask;
+        long oldCapacity = capacity;
+        allocate(newCapacity);
+        for (long oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+            ByteBuffer oldChunk = oldChunks[(int) (oldSlot >>> oldChunkShift)];
+            int oldOffset = (int) (oldSlot & oldChunkMask) * slotSize;
+            if (oldChunk.get(oldOffset + STATE_OFFSET) == FULL) {
+                long slot = oldChunk.getInt(oldOffset + HASH_OFFSET) & mask;
+                while (chunkOf(slot).get(offsetOf(slot) + STATE_OFFSET) == FULL) {
+                    slot = (slot + 1) & mask;
+                }
+                copySlot(oldChunk, oldOffset, chunkOf(slot), offsetOf(slot));
+            }
+        }
+    }
+
+    private void copySlot(ByteBuffer from, int fromOffset, ByteBuffer to, int toOffset) {
+        int i = 0;
+        for (; i + Long.BYTES <= slotSize; i += Long.BYTES) {
+            to.putLong(toOffset + i, from.getLong(fromOffset + i));
+        }
+        for (; i < slotSize; i++) {
+            to.put(toOffset + i, from.get(fromOffset + i));
+        }
+    }
+
+    private void allocate(long slots) {
+        int slotsPerChunk = Integer.highestOneBit(MAX_CHUNK_BYTES / slotSize);
+        if (slots < slotsPerChunk) {
+            slotsPerChunk = (int) slots;
+        }
+        int chunkCount = (int) (slots / slotsPerChunk);
+        ByteBuffer[] newChunks = new ByteBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            //allocateDirect zero fills, so every slot starts FREE
+            newChunks[i] = ByteBuffer.allocateDirect(slotsPerChunk * slotSize);
+        }
+        chunks = newChunks;
+        chunkShift = Integer.numberOfTrailingZeros(slotsPerChunk);
+        chunkMask = slotsPerChunk - 1;
+        capacity = slots;
+        mask = slots - 1;
+        threshold = (long) (slots * loadFactor);
+    }
+
+    private ByteBuffer chunkOf(long slot) {
+        return chunks[(int) (slot >>> chunkShift)];
+    }
+
+    private int offsetOf(long slot) {
+        return (int) (slot & chunkMask) * slotSize;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("OffHeapMyHashMap is closed");
+        }
+    }
+
+    //example record: hold state of one seat, encoded in 13 bytes
+    static final class SeatHoldState {
+        final int userId;
+        final long heldUntilMillis;
+        final byte status;
+
+        SeatHoldState(int userId, long heldUntilMillis, byte status) {
+            this.userId = userId;
+            this.heldUntilMillis = heldUntilMillis;
+            this.status = status;
+        }
+    }
+
+    static final FixedWidthCodec<SeatHoldState> SEAT_HOLD_CODEC = new FixedWidthCodec<>() {
+        @Override
+        public int width() {
+            return Integer.BYTES + Long.BYTES + 1;
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, int offset, SeatHoldState value) {
+            buffer.putInt(offset, value.userId);
+            buffer.putLong(offset + Integer.BYTES, value.heldUntilMillis);
+            buffer.put(offset + Integer.BYTES + Long.BYTES, value.status);
+        }
+
+        @Override
+        public SeatHoldState read(ByteBuffer buffer, int offset) {
+            return new SeatHoldState(buffer.getInt(offset), buffer.getLong(offset + Integer.BYTES),
+                    buffer.get(offset + Integer.BYTES + Long.BYTES));
+        }
+    };
+
+    public static void main(String args[]) {
+
+        //key = showId << 32 | seatId
+        try (OffHeapMyHashMap<Long, SeatHoldState> holds = new OffHeapMyHashMap<>(FixedWidthCodec.LONG, SEAT_HOLD_CODEC)) {
+            long now = System.currentTimeMillis();
+            for (int show = 0; show < 1_000; show++) {
+                for (int seat = 0; seat < 2_000; seat++) {
+                    holds.put(((long) show << 32) | seat, new SeatHoldState(seat, now + 600_000, (byte) 1));
+                }
+            }
+            holds.remove((7L << 32) | 30);
+            SeatHoldState hold = holds.get((7L << 32) | 31);
+            System.out.println("userId: " + hold.userId + ", removed present: " + holds.containsKey((7L << 32) | 30));
+            System.out.println("entries: " + holds.size() + ", slots: " + holds.capacity()
+                    + ", off heap MB: " + holds.allocatedBytes() / (1 << 20) + ", occupancy: " + holds.occupancy());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package LowLevelDesign.DesignDataStructures;
+
+//hashing and sizing helpers shared by the open addressing primitive maps
+final class PrimitiveMaps {
+
+    private static final int INT_PHI = 0x9E3779B9;
+    private static final long LONG_PHI = 0x9E3779B97F4A7C15L;
+
+    private PrimitiveMaps() {
+    }
+
+    //ids are often sequential, multiply by the golden ratio so neighbours do not land in one probe run
+    static int mix(int key) {
+        int h = key * INT_PHI;
+        return h ^ (h >>> 16);
+    }
+
+    static int mix(long key) {
+        long h = key * LONG_PHI;
+        h ^= (h >>> 32);
+        return (int) (h ^ (h >>> 16));
+    }
+
+    //smallest power of two table that holds expectedSize entries without crossing the load factor
+    static int tableSizeFor(int expectedSize, float loadFactor, int maximumCapacity) {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 1) / (double) loadFactor) + 1;
+        if (needed >= maximumCapacity) {
+            return maximumCapacity;
+        }
+        int capacity = Integer.highestOneBit((int) needed - 1) << 1;
+        return Math.max(capacity, 2);
+    }
+}
@@ -0,0 +1,92 @@
+package LowLevelDesign.DesignDataStructures;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Immutable snapshot of some mutable state, for readers that must never take a lock.
+ * Writers change the state under their own lock and then call invalidate; a background thread calls the builder
+ * for a new snapshot and swaps it in through a volatile field. A burst of changes is folded into one rebuild.
+ * current() may lag the latest writes by one rebuild; awaitFresh waits until the writes made so far are published.
+ */
+public class SnapshotPublisher<T> {
+
+    final Supplier<T> builder;
+    final ExecutorService rebuilder;
+    volatile T current;
+
+    //guarded by this
+    long requested;
+    long published;
+    boolean scheduled;
+    RuntimeException failure;
+
+    public SnapshotPublisher(String name, Supplier<T> builder) {
+        this.builder = builder;
+        this.current = builder.get();
+        this.rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public T current() {
+        return current;
+    }
+
+    public synchronized void invalidate() {
+        requested++;
+        if (!scheduled) {
+            scheduled = true;
+            rebuilder.execute(this::rebuild);
+        }
+    }
+
+    public synchronized T awaitFresh() {
+        long target = requested;
+        while (published < target) {
+            if (failure != null) {
+                throw new IllegalStateException("Snapshot rebuild failed", failure);
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a snapshot", e);
+            }
+        }
+        return current;
+    }
+
+    private void rebuild() {
+        while (true) {
+            long version;
+            synchronized (this) {
+                version = requested;
+            }
+            T snapshot;
+            try {
+                snapshot = builder.get();
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    failure = e;
+                    scheduled = false;
+                    notifyAll();
+                }
+                throw e;
+            }
+            synchronized (this) {
+                current = snapshot;
+                published = version;
+                failure = null;
+                notifyAll();
+                if (requested == version) {
+                    scheduled = false;
+                    return;
+                }
+            }
+        }
+    }
+}
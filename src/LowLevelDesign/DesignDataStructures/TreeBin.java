@@ -0,0 +1,261 @@
+package LowLevelDesign.DesignDataStructures;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+/**
+ * Head of a MyHashMap bucket whose chain got too long.
+ * The entries are kept in an AVL tree ordered by hash, then by compareTo when the keys are mutually Comparable,
+ * so a bucket full of colliding String keys is still searched in O(log n).
+ * The TreeNodes are also linked through Entry.next, which is what iteration and rehashing walk.
+ */
+class TreeBin<K,V> extends MyHashMap.Entry<K,V> {
+
+    TreeNode<K,V> root;
+    TreeNode<K,V> first;
+    int count;
+
+    //set by delete when the target node was found on the ordering path
+    private boolean removed;
+
+    TreeBin() {
+        super(0, null, null, null);
+    }
+
+    static final class TreeNode<K,V> extends MyHashMap.Entry<K,V> {
+
+        TreeNode<K,V> left;
+        TreeNode<K,V> right;
+        TreeNode<K,V> previous;
+        int height = 1;
+
+        TreeNode(int hash, K key, V value) {
+            super(hash, key, value, null);
+        }
+    }
+
+    //builds a bin out of a plain chain
+    static <K,V> TreeBin<K,V> treeify(MyHashMap.Entry<K,V> chain) {
+        TreeBin<K,V> bin = new TreeBin<>();
+        for (MyHashMap.Entry<K,V> node = chain; node != null; node = node.next) {
+            bin.add(node.hash, node.key, node.value);
+        }
+        return bin;
+    }
+
+    MyHashMap.Entry<K,V> find(int hash, Object key) {
+        return find(root, hash, key, comparableClassFor(key));
+    }
+
+    //caller has already checked that the key is not present
+    void add(int hash, K key, V value) {
+        TreeNode<K,V> node = new TreeNode<>(hash, key, value);
+        root = insert(root, node, comparableClassFor(key));
+        node.next = first;
+        if (first != null) {
+            first.previous = node;
+        }
+        first = node;
+        count++;
+    }
+
+    //unlinks a node returned by find; the caller turns the bin back into a chain once it is small
+    void remove(TreeNode<K,V> node) {
+        if (node.previous == null) {
+            first = (TreeNode<K,V>) node.next;
+        } else {
+            node.previous.next = node.next;
+        }
+        if (node.next != null) {
+            ((TreeNode<K,V>) node.next).previous = node.previous;
+        }
+        count--;
+
+        removed = false;
+        root = delete(root, node, comparableClassFor(node.key));
+        if (!removed) {
+            //only possible if two keys tied on every ordering rule, rebuild from the list instead
+            root = null;
+            for (TreeNode<K,V> p = first; p != null; p = (TreeNode<K,V>) p.next) {
+                p.left = p.right = null;
+                p.height = 1;
+                root = insert(root, p, comparableClassFor(p.key));
+            }
+        }
+        node.left = node.right = node.previous = null;
+        node.next = null;
+    }
+
+    //plain chain with the same mappings, used when the bin shrinks or is split by a resize
+    MyHashMap.Entry<K,V> untreeify() {
+        MyHashMap.Entry<K,V> head = null;
+        for (MyHashMap.Entry<K,V> p = first; p != null; p = p.next) {
+            head = new MyHashMap.Entry<>(p.hash, p.key, p.value, head);
+        }
+        return head;
+    }
+
+    //keyClass is comparableClassFor(key), looked up once per operation since it is reflective
+    private static <K,V> TreeNode<K,V> find(TreeNode<K,V> p, int hash, Object key, Class<?> keyClass) {
+        while (p != null) {
+            if (hash < p.hash) {
+                p = p.left;
+            } else if (hash > p.hash) {
+                p = p.right;
+            } else if (p.key == key || key.equals(p.key)) {
+                return p;
+            } else {
+                int dir = compareComparables(keyClass, key, p.key);
+                if (dir != 0) {
+                    p = dir < 0 ? p.left : p.right;
+                } else {
+                    //keys we cannot order were placed by tie break, so both sides have to be searched
+                    TreeNode<K,V> found = find(p.right, hash, key, keyClass);
+                    if (found != null) {
+                        return found;
+                    }
+                    p = p.left;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static <K,V> TreeNode<K,V> insert(TreeNode<K,V> p, TreeNode<K,V> node, Class<?> keyClass) {
+        if (p == null) {
+            return node;
+        }
+        if (order(node, p, keyClass) < 0) {
+            p.left = insert(p.left, node, keyClass);
+        } else {
+            p.right = insert(p.right, node, keyClass);
+        }
+        return rebalance(p);
+    }
+
+    private TreeNode<K,V> delete(TreeNode<K,V> p, TreeNode<K,V> target, Class<?> keyClass) {
+        if (p == null) {
+            return null;
+        }
+        if (p == target) {
+            removed = true;
+            if (p.left == null) {
+                return p.right;
+            }
+            if (p.right == null) {
+                return p.left;
+            }
+            TreeNode<K,V> successor = p.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = deleteMin(p.right);
+            successor.left = p.left;
+            return rebalance(successor);
+        }
+        if (order(target, p, keyClass) < 0) {
+            p.left = delete(p.left, target, keyClass);
+        } else {
+            p.right = delete(p.right, target, keyClass);
+        }
+        return rebalance(p);
+    }
+
+    private static <K,V> TreeNode<K,V> deleteMin(TreeNode<K,V> p) {
+        if (p.left == null) {
+            return p.right;
+        }
+        p.left = deleteMin(p.left);
+        return rebalance(p);
+    }
+
+    //total order used for placement: hash, then compareTo, then a tie break that never returns 0
+    private static int order(MyHashMap.Entry<?,?> a, MyHashMap.Entry<?,?> b, Class<?> keyClass) {
+        if (a.hash != b.hash) {
+            return a.hash < b.hash ? -1 : 1;
+        }
+        int dir = compareComparables(keyClass, a.key, b.key);
+        if (dir != 0) {
+            return dir;
+        }
+        dir = a.key.getClass().getName().compareTo(b.key.getClass().getName());
+        if (dir != 0) {
+            return dir;
+        }
+        return System.identityHashCode(a.key) <= System.identityHashCode(b.key) ? -1 : 1;
+    }
+
+    //compareTo result if both keys are of a's self comparable class, else 0
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareComparables(Class<?> type, Object a, Object b) {
+        if (type == null || b == null || b.getClass() != type) {
+            return 0;
+        }
+        return ((Comparable) a).compareTo(b);
+    }
+
+    //a's class if it is declared as "class C implements Comparable<C>", same check as HashMap.comparableClassFor
+    private static Class<?> comparableClassFor(Object a) {
+        if (!(a instanceof Comparable)) {
+            return null;
+        }
+        Class<?> type = a.getClass();
+        if (type == String.class) {
+            return type;
+        }
+        for (Type candidate : type.getGenericInterfaces()) {
+            if (candidate instanceof ParameterizedType) {
+                ParameterizedType parameterized = (ParameterizedType) candidate;
+                Type[] arguments = parameterized.getActualTypeArguments();
+                if (parameterized.getRawType() == Comparable.class && arguments.length == 1 && arguments[0] == type) {
+                    return type;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static int height(TreeNode<?,?> p) {
+        return p == null ? 0 : p.height;
+    }
+
+    private static void updateHeight(TreeNode<?,?> p) {
+        p.height = Math.max(height(p.left), height(p.right)) + 1;
+    }
+
+    private static <K,V> TreeNode<K,V> rebalance(TreeNode<K,V> p) {
+        updateHeight(p);
+        int balance = height(p.left) - height(p.right);
+        if (balance > 1) {
+            if (height(p.left.left) < height(p.left.right)) {
+                p.left = rotateLeft(p.left);
+            }
+            return rotateRight(p);
+        }
+        if (balance < -1) {
+            if (height(p.right.right) < height(p.right.left)) {
+                p.right = rotateRight(p.right);
+            }
+            return rotateLeft(p);
+        }
+        return p;
+    }
+
+    private static <K,V> TreeNode<K,V> rotateRight(TreeNode<K,V> p) {
+        TreeNode<K,V> l = p.left;
+        p.left = l.right;
+        l.right = p;
+        updateHeight(p);
+        updateHeight(l);
+        return l;
+    }
+
+    private static <K,V> TreeNode<K,V> rotateLeft(TreeNode<K,V> p) {
+        TreeNode<K,V> r = p.right;
+        p.right = r.left;
+        r.left = p;
+        updateHeight(p);
+        updateHeight(r);
+        return r;
+    }
+}
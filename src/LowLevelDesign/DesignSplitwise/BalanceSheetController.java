@@ -3,57 +3,83 @@ package LowLevelDesign.DesignSplitwise;
 import LowLevelDesign.DesignSplitwise.Expense.Split.Split;
 import LowLevelDesign.DesignSplitwise.User.User;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
 public class BalanceSheetController {
 
-    public void updateUserExpenseBalanceSheet(User expensePaidBy, List<Split> splits, double totalExpenseAmount){
+    Ledger ledger;
+
+    public BalanceSheetController(){
+        this(new Ledger());
+    }
+
+    public BalanceSheetController(Ledger ledger){
+        this.ledger = ledger;
+    }
+
+    public Ledger getLedger() {
+        return ledger;
+    }
+
+    //amounts in cents, the share of every split is in its amountOweCents; safe to call from many threads
+    public void updateUserExpenseBalanceSheet(User expensePaidBy, List<Split> splits, long totalExpenseCents){
+
+        int[] stripes = stripesOf(expensePaidBy, splits);
+        ledger.lockStripes(stripes);
+        try {
+            applyExpense(expensePaidBy, splits, totalExpenseCents);
+        } finally {
+            ledger.unlockStripes(stripes);
+        }
+    }
+
+    //ledger stripes of all users of an expense, ascending and without duplicates
+    private int[] stripesOf(User expensePaidBy, List<Split> splits){
+
+        int[] stripes = new int[splits.size() + 1];
+        stripes[0] = ledger.stripeOf(expensePaidBy.getUserId());
+        for(int i = 0; i < splits.size(); i++) {
+            stripes[i + 1] = ledger.stripeOf(splits.get(i).getUser().getUserId());
+        }
+        Arrays.sort(stripes);
+        int distinct = 0;
+        for(int i = 0; i < stripes.length; i++) {
+            if(i == 0 || stripes[i] != stripes[i - 1]) {
+                stripes[distinct++] = stripes[i];
+            }
+        }
+        return Arrays.copyOf(stripes, distinct);
+    }
+
+    //the caller holds the stripes of every user involved
+    private void applyExpense(User expensePaidBy, List<Split> splits, long totalExpenseCents){
 
         //update the total amount paid of the expense paid by user
         UserExpenseBalanceSheet paidByUserExpenseSheet = expensePaidBy.getUserExpenseBalanceSheet();
-        paidByUserExpenseSheet.setTotalPayment(paidByUserExpenseSheet.getTotalPayment() + totalExpenseAmount);
+        paidByUserExpenseSheet.setTotalPaymentCents(paidByUserExpenseSheet.getTotalPaymentCents() + totalExpenseCents);
 
         for(Split split : splits) {
 
             User userOwe = split.getUser();
             UserExpenseBalanceSheet oweUserExpenseSheet = userOwe.getUserExpenseBalanceSheet();
-            double oweAmount = split.getAmountOwe();
+            long oweCents = split.getAmountOweCents();
 
             if(expensePaidBy.getUserId().equals(userOwe.getUserId())){
-                paidByUserExpenseSheet.setTotalYourExpense(paidByUserExpenseSheet.getTotalYourExpense()+oweAmount);
+                paidByUserExpenseSheet.setTotalYourExpenseCents(paidByUserExpenseSheet.getTotalYourExpenseCents() + oweCents);
             }
             else {
 
                 //update the balance of paid user
-                paidByUserExpenseSheet.setTotalYouGetBack(paidByUserExpenseSheet.getTotalYouGetBack() + oweAmount);
-
-                Balance userOweBalance;
-                if(paidByUserExpenseSheet.getUserVsBalance().containsKey(userOwe.getUserId())) {
-
-                    userOweBalance = paidByUserExpenseSheet.getUserVsBalance().get(userOwe.getUserId());
-                }
-                else {
-                    userOweBalance = new Balance();
-                    paidByUserExpenseSheet.getUserVsBalance().put(userOwe.getUserId(), userOweBalance);
-                }
-
-                userOweBalance.setAmountGetBack(userOweBalance.getAmountGetBack() + oweAmount);
-
+                paidByUserExpenseSheet.setTotalYouGetBackCents(paidByUserExpenseSheet.getTotalYouGetBackCents() + oweCents);
 
                 //update the balance sheet of owe user
-                oweUserExpenseSheet.setTotalYouOwe(oweUserExpenseSheet.getTotalYouOwe() + oweAmount);
-                oweUserExpenseSheet.setTotalYourExpense(oweUserExpenseSheet.getTotalYourExpense() + oweAmount);
-
-                Balance userPaidBalance;
-                if(oweUserExpenseSheet.getUserVsBalance().containsKey(expensePaidBy.getUserId())){
-                    userPaidBalance = oweUserExpenseSheet.getUserVsBalance().get(expensePaidBy.getUserId());
-                }
-                else{
-                    userPaidBalance = new Balance();
-                    oweUserExpenseSheet.getUserVsBalance().put(expensePaidBy.getUserId(), userPaidBalance);
-                }
-                userPaidBalance.setAmountOwe(userPaidBalance.getAmountOwe() + oweAmount);
+                oweUserExpenseSheet.setTotalYouOweCents(oweUserExpenseSheet.getTotalYouOweCents() + oweCents);
+                oweUserExpenseSheet.setTotalYourExpenseCents(oweUserExpenseSheet.getTotalYourExpenseCents() + oweCents);
+
+                //one ledger entry holds the balance of both users
+                ledger.record(expensePaidBy.getUserId(), userOwe.getUserId(), oweCents);
             }
         }
     }
@@ -66,16 +92,24 @@ public class BalanceSheetController {
 
         UserExpenseBalanceSheet userExpenseBalanceSheet =  user.getUserExpenseBalanceSheet();
 
-        System.out.println("TotalYourExpense: " + userExpenseBalanceSheet.getTotalYourExpense());
-        System.out.println("TotalGetBack: " + userExpenseBalanceSheet.getTotalYouGetBack());
-        System.out.println("TotalYourOwe: " + userExpenseBalanceSheet.getTotalYouOwe());
-        System.out.println("TotalPaymnetMade: " + userExpenseBalanceSheet.getTotalPayment());
-        for(Map.Entry<String, Balance> entry : userExpenseBalanceSheet.getUserVsBalance().entrySet()){
+        int[] stripe = {ledger.stripeOf(user.getUserId())};
+        ledger.lockStripes(stripe);
+        try {
+            System.out.println("TotalYourExpense: " + Ledger.format(userExpenseBalanceSheet.getTotalYourExpenseCents()));
+            System.out.println("TotalGetBack: " + Ledger.format(userExpenseBalanceSheet.getTotalYouGetBackCents()));
+            System.out.println("TotalYourOwe: " + Ledger.format(userExpenseBalanceSheet.getTotalYouOweCents()));
+            System.out.println("TotalPaymnetMade: " + Ledger.format(userExpenseBalanceSheet.getTotalPaymentCents()));
+        } finally {
+            ledger.unlockStripes(stripe);
+        }
+        //the ledger keeps one net balance per counterparty, so at most one of the two columns is non zero
+        for(Map.Entry<String, Long> entry : ledger.getBalancesOf(user.getUserId()).entrySet()){
 
             String userID = entry.getKey();
-            Balance balance = entry.getValue();
+            long balanceCents = entry.getValue();
 
-            System.out.println("userID:" + userID + " YouGetBack:" + balance.getAmountGetBack() + " YouOwe:" + balance.getAmountOwe());
+            System.out.println("userID:" + userID + " YouGetBack:" + Ledger.format(Math.max(balanceCents, 0))
+                    + " YouOwe:" + Ledger.format(Math.max(-balanceCents, 0)));
         }
 
         System.out.println("---------------------------------------");
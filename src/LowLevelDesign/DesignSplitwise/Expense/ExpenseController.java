@@ -1,6 +1,8 @@
 package LowLevelDesign.DesignSplitwise.Expense;
 
 import LowLevelDesign.DesignSplitwise.BalanceSheetController;
+import LowLevelDesign.DesignSplitwise.ExpenseJournal;
+import LowLevelDesign.DesignSplitwise.Ledger;
 import LowLevelDesign.DesignSplitwise.Expense.Split.ExpenseSplit;
 import LowLevelDesign.DesignSplitwise.Expense.Split.Split;
 import LowLevelDesign.DesignSplitwise.User.User;
@@ -10,19 +12,56 @@ import java.util.List;
 public class ExpenseController {
 
     BalanceSheetController balanceSheetController;
+    //null when expenses are not logged
+    ExpenseJournal journal;
     public ExpenseController(){
-        balanceSheetController = new BalanceSheetController();
+        this(new Ledger());
+    }
+
+    public ExpenseController(Ledger ledger){
+        balanceSheetController = new BalanceSheetController(ledger);
+    }
+
+    //expenses are logged to journal before they are applied to its ledger
+    public ExpenseController(ExpenseJournal journal){
+        this(journal.getLedger());
+        this.journal = journal;
     }
 
     public Expense createExpense(String expenseId, String description, double expenseAmount,
                                  List<Split> splitDetails, ExpenseSplitType splitType, User paidByUser){
+        return createExpense(null, expenseId, description, expenseAmount, splitDetails, splitType, paidByUser);
+    }
+
+    public Expense createExpense(String groupId, String expenseId, String description, double expenseAmount,
+                                 List<Split> splitDetails, ExpenseSplitType splitType, User paidByUser){
 
         ExpenseSplit expenseSplit = SplitFactory.getSplitObject(splitType);
         expenseSplit.validateSplitRequest(splitDetails, expenseAmount);
 
+        //from here on the amounts are exact cents
+        long expenseCents = Ledger.toCents(expenseAmount);
+        long[] splitCents = expenseSplit.splitAmountsCents(splitDetails, expenseCents);
+        long splitTotal = 0;
+        for (long cents : splitCents) {
+            splitTotal += cents;
+        }
+        if (splitTotal != expenseCents) {
+            throw new IllegalArgumentException("Splits of expense " + expenseId + " add up to " + Ledger.format(splitTotal)
+                    + " instead of " + Ledger.format(expenseCents));
+        }
+        for (int i = 0; i < splitCents.length; i++) {
+            splitDetails.get(i).setAmountOweCents(splitCents[i]);
+        }
+
         Expense expense = new Expense(expenseId, expenseAmount, description, paidByUser, splitType, splitDetails);
 
-        balanceSheetController.updateUserExpenseBalanceSheet(paidByUser, splitDetails, expenseAmount);
+        if (journal == null) {
+            balanceSheetController.updateUserExpenseBalanceSheet(paidByUser, splitDetails, expenseCents);
+        } else {
+            journal.appendThenApply(groupId, expenseId, description, paidByUser, splitType, expenseCents, splitDetails,
+                    () -> balanceSheetController.updateUserExpenseBalanceSheet(paidByUser, splitDetails, expenseCents));
+        }
 
         return expense;
     }
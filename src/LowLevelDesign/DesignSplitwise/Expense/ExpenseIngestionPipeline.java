@@ -0,0 +1,252 @@
+package LowLevelDesign.DesignSplitwise.Expense;
+
+import LowLevelDesign.DesignSplitwise.ExpenseJournal;
+import LowLevelDesign.DesignSplitwise.Ledger;
+import LowLevelDesign.DesignSplitwise.Expense.Split.Split;
+import LowLevelDesign.DesignSplitwise.User.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Takes expenses from many threads and applies every expense id exactly once.
+ * A pool of workers validates the expenses and splits them into cents in parallel, then applies them through
+ * BalanceSheetController, which holds the ledger stripes of the users involved, so expenses between different
+ * users are applied in parallel as well. Submitting an expense id again returns the future of the first submission
+ * instead of applying it twice; an id whose expense was rejected may be submitted again.
+ * Applied ids are remembered for the last dedupeWindow applied expenses only, so memory stays bounded:
+ * a retry that comes later than that is applied again.
+ * When the workers fall behind, the submitting thread runs the expense itself; after close, submissions fail.
+ */
+public class ExpenseIngestionPipeline implements AutoCloseable {
+
+    private static final int QUEUE_CAPACITY = 1 << 14;
+    public static final int DEFAULT_DEDUPE_WINDOW = 1 << 16;
+
+    final ExpenseController expenseController;
+    final ThreadPoolExecutor workers;
+    final int dedupeWindow;
+    //ids in flight and the last dedupeWindow applied ones, oldest applied first in appliedIds
+    final Map<String, CompletableFuture<Expense>> expensesById = new ConcurrentHashMap<>();
+    final ConcurrentLinkedQueue<String> appliedIds = new ConcurrentLinkedQueue<>();
+    final AtomicInteger rememberedIds = new AtomicInteger();
+    final LongAdder applied = new LongAdder();
+    final LongAdder rejected = new LongAdder();
+    final LongAdder duplicates = new LongAdder();
+
+    public ExpenseIngestionPipeline(Ledger ledger) {
+        this(ledger, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ExpenseIngestionPipeline(Ledger ledger, int workerCount) {
+        this(new ExpenseController(ledger), workerCount, DEFAULT_DEDUPE_WINDOW);
+    }
+
+    //expenses are logged to journal before they are applied
+    public ExpenseIngestionPipeline(ExpenseJournal journal, int workerCount) {
+        this(new ExpenseController(journal), workerCount, DEFAULT_DEDUPE_WINDOW);
+    }
+
+    public ExpenseIngestionPipeline(ExpenseJournal journal, int workerCount, int dedupeWindow) {
+        this(new ExpenseController(journal), workerCount, dedupeWindow);
+    }
+
+    private ExpenseIngestionPipeline(ExpenseController expenseController, int workerCount, int dedupeWindow) {
+        if (dedupeWindow <= 0) {
+            throw new IllegalArgumentException("dedupeWindow must be positive");
+        }
+        this.expenseController = expenseController;
+        this.dedupeWindow = dedupeWindow;
+        //caller runs while open; once shut down the task is refused instead of silently dropped
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "expense-ingestion");
+                    thread.setDaemon(true);
+                    return thread;
+                }, (runnable, executor) -> {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("ExpenseIngestionPipeline is closed");
+                    }
+                    runnable.run();
+                });
+    }
+
+    //the splits belong to this expense, their amountOweCents are filled in
+    public CompletableFuture<Expense> submit(String expenseId, String description, double expenseAmount,
+                                             List<Split> splitDetails, ExpenseSplitType splitType, User paidByUser) {
+        return submit(null, expenseId, description, expenseAmount, splitDetails, splitType, paidByUser, null);
+    }
+
+    //onApplied runs once, right after the expense is applied, e.g. to add it to its group; if it throws,
+    //the future fails but the expense stays applied and its id taken, so a retry does not apply it twice
+    public CompletableFuture<Expense> submit(String groupId, String expenseId, String description, double expenseAmount,
+                                             List<Split> splitDetails, ExpenseSplitType splitType, User paidByUser,
+                                             Consumer<Expense> onApplied) {
+
+        CompletableFuture<Expense> future = new CompletableFuture<>();
+        CompletableFuture<Expense> first = expensesById.putIfAbsent(expenseId, future);
+        if (first != null) {
+            duplicates.increment();
+            return first;
+        }
+        try {
+            workers.execute(() -> apply(future, groupId, expenseId, description, expenseAmount, splitDetails,
+                    splitType, paidByUser, onApplied));
+        } catch (RejectedExecutionException e) {
+            expensesById.remove(expenseId, future);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void apply(CompletableFuture<Expense> future, String groupId, String expenseId, String description,
+                       double expenseAmount, List<Split> splitDetails, ExpenseSplitType splitType, User paidByUser,
+                       Consumer<Expense> onApplied) {
+        Expense expense;
+        try {
+            validate(expenseId, splitDetails, paidByUser);
+            expense = expenseController.createExpense(groupId, expenseId, description, expenseAmount,
+                    splitDetails, splitType, paidByUser);
+        } catch (RuntimeException e) {
+            rejected.increment();
+            expensesById.remove(expenseId, future);
+            future.completeExceptionally(e);
+            return;
+        }
+        applied.increment();
+        remember(expenseId);
+        if (onApplied != null) {
+            try {
+                onApplied.accept(expense);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+                return;
+            }
+        }
+        future.complete(expense);
+    }
+
+    //keeps the id of an applied expense, forgetting the oldest one beyond dedupeWindow
+    private void remember(String expenseId) {
+        appliedIds.add(expenseId);
+        if (rememberedIds.incrementAndGet() > dedupeWindow) {
+            String oldest = appliedIds.poll();
+            if (oldest != null) {
+                rememberedIds.decrementAndGet();
+                expensesById.remove(oldest);
+            }
+        }
+    }
+
+    public long appliedCount() {
+        return applied.sum();
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    public long duplicateCount() {
+        return duplicates.sum();
+    }
+
+    //waits for the expenses submitted so far, later submissions fail with RejectedExecutionException
+    @Override
+    public void close() {
+        workers.shutdown();
+        try {
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void validate(String expenseId, List<Split> splitDetails, User paidByUser) {
+        if (paidByUser == null) {
+            throw new IllegalArgumentException("Expense " + expenseId + " has no payer");
+        }
+        if (splitDetails == null || splitDetails.isEmpty()) {
+            throw new IllegalArgumentException("Expense " + expenseId + " has no splits");
+        }
+        for (Split split : splitDetails) {
+            if (split.getUser() == null) {
+                throw new IllegalArgumentException("Expense " + expenseId + " has a split without user");
+            }
+        }
+    }
+
+    public static void main(String args[]) throws Exception {
+
+        int userCount = 10_000;
+        int expenseCount = 400_000;
+        int submitters = 4;
+        User[] users = new User[userCount];
+        for (int u = 0; u < userCount; u++) {
+            users[u] = new User("U" + u, "User" + u);
+        }
+
+        //every submitter sends its share of the expenses, and one in ten of them a second time
+        Ledger ledger = new Ledger();
+        ExpenseIngestionPipeline pipeline = new ExpenseIngestionPipeline(ledger);
+        List<CompletableFuture<Expense>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        Thread[] threads = new Thread[submitters];
+        for (int t = 0; t < submitters; t++) {
+            int submitter = t;
+            threads[t] = new Thread(() -> {
+                Random random = new Random(submitter);
+                List<CompletableFuture<Expense>> mine = new ArrayList<>();
+                for (int e = submitter; e < expenseCount; e += submitters) {
+                    List<Split> splits = new ArrayList<>();
+                    for (int s = 0; s < 4; s++) {
+                        splits.add(new Split(users[random.nextInt(userCount)], 0));
+                    }
+                    User paidBy = splits.get(0).getUser();
+                    mine.add(pipeline.submit("E" + e, "dinner", 100.01, splits, ExpenseSplitType.EQUAL, paidBy));
+                    if (e % 10 == 0) {
+                        mine.add(pipeline.submit("E" + e, "dinner", 100.01, splits, ExpenseSplitType.EQUAL, paidBy));
+                    }
+                }
+                synchronized (futures) {
+                    futures.addAll(mine);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        long nanos = System.nanoTime() - start;
+        pipeline.close();
+
+        List<String> userIds = new ArrayList<>();
+        for (User user : users) {
+            userIds.add(user.getUserId());
+        }
+        long total = 0;
+        for (long net : ledger.netPositions(userIds)) {
+            total += net;
+        }
+        long paid = 0;
+        for (User user : users) {
+            paid += user.getUserExpenseBalanceSheet().getTotalPaymentCents();
+        }
+        System.out.println("applied: " + pipeline.appliedCount() + ", duplicates: " + pipeline.duplicateCount()
+                + ", rejected: " + pipeline.rejectedCount() + ", expenses/s: " + expenseCount * 1_000_000_000L / nanos);
+        System.out.println("net positions add up to: " + total + ", total paid: " + Ledger.format(paid)
+                + " (expected " + Ledger.format(expenseCount * 10_001L) + ")");
+    }
+}
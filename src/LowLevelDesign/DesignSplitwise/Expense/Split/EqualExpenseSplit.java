@@ -15,4 +15,18 @@ public class EqualExpenseSplit implements ExpenseSplit{
            }
         }
     }
+
+    //100.00 among 3 is 33.34, 33.33, 33.33: the cents left over go one each to the first splits in the list
+    @Override
+    public long[] splitAmountsCents(List<Split> splitList, long totalCents) {
+
+        int count = splitList.size();
+        long[] cents = new long[count];
+        long share = Math.floorDiv(totalCents, count);
+        long remainder = totalCents - share * count;
+        for (int i = 0; i < count; i++) {
+            cents[i] = share + (i < remainder ? 1 : 0);
+        }
+        return cents;
+    }
 }
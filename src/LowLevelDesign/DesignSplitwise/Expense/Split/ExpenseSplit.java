@@ -5,4 +5,7 @@ import java.util.List;
 public interface ExpenseSplit {
 
     public void validateSplitRequest(List<Split> splitList, double totalAmount);
+
+    //share of every split in cents, adding up to totalCents; the same input always gets the same cents
+    public long[] splitAmountsCents(List<Split> splitList, long totalCents);
 }
@@ -1,5 +1,9 @@
 package LowLevelDesign.DesignSplitwise.Expense.Split;
 
+import LowLevelDesign.DesignSplitwise.Ledger;
+
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 
 public class PercentageExpenseSplit implements ExpenseSplit {
@@ -7,4 +11,46 @@ public class PercentageExpenseSplit implements ExpenseSplit {
     public void validateSplitRequest(List<Split> splitList, double totalAmount) {
 
     }
+
+    /**
+     * The amountOwe of every split is its percentage (or any weight), the total is shared in proportion.
+     * Every split gets its share rounded down to the cent, the cents left over go one each to the splits that lost
+     * the most in rounding, ties to the earlier split (largest remainder method).
+     */
+    @Override
+    public long[] splitAmountsCents(List<Split> splitList, long totalCents) {
+
+        int count = splitList.size();
+        long[] weights = new long[count];
+        long totalWeight = 0;
+        for (int i = 0; i < count; i++) {
+            weights[i] = Ledger.toCents(splitList.get(i).getAmountOwe());
+            if (weights[i] < 0) {
+                throw new IllegalArgumentException("Negative percentage for user " + splitList.get(i).getUser().getUserId());
+            }
+            totalWeight += weights[i];
+        }
+        if (totalWeight == 0) {
+            throw new IllegalArgumentException("Percentages add up to 0");
+        }
+
+        long[] cents = new long[count];
+        long[] lost = new long[count];
+        long assigned = 0;
+        for (int i = 0; i < count; i++) {
+            long product = Math.multiplyExact(totalCents, weights[i]);
+            cents[i] = Math.floorDiv(product, totalWeight);
+            lost[i] = Math.floorMod(product, totalWeight);
+            assigned += cents[i];
+        }
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingLong(i -> lost[i]).reversed().thenComparingInt(i -> i));
+        for (int i = 0; i < totalCents - assigned; i++) {
+            cents[order[i]]++;
+        }
+        return cents;
+    }
 }
@@ -6,6 +6,8 @@ public class Split {
 
     User user;
     double amountOwe;
+    //the exact share in cents, filled in by the ExpenseSplit of the expense
+    long amountOweCents;
 
     public Split(User user, double amountOwe){
         this.user = user;
@@ -28,4 +30,12 @@ public class Split {
         this.amountOwe = amountOwe;
     }
 
+    public long getAmountOweCents() {
+        return amountOweCents;
+    }
+
+    public void setAmountOweCents(long amountOweCents) {
+        this.amountOweCents = amountOweCents;
+    }
+
 }
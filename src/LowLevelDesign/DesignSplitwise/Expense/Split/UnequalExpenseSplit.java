@@ -1,5 +1,7 @@
 package LowLevelDesign.DesignSplitwise.Expense.Split;
 
+import LowLevelDesign.DesignSplitwise.Ledger;
+
 import java.util.List;
 
 public class UnequalExpenseSplit implements ExpenseSplit{
@@ -8,4 +10,15 @@ public class UnequalExpenseSplit implements ExpenseSplit{
     public void validateSplitRequest(List<Split> splitList, double totalAmount) {
 
     }
+
+    //every split owes its own amount
+    @Override
+    public long[] splitAmountsCents(List<Split> splitList, long totalCents) {
+
+        long[] cents = new long[splitList.size()];
+        for (int i = 0; i < cents.length; i++) {
+            cents[i] = Ledger.toCents(splitList.get(i).getAmountOwe());
+        }
+        return cents;
+    }
 }
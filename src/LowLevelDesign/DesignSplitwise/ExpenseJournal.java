@@ -0,0 +1,600 @@
+package LowLevelDesign.DesignSplitwise;
+
+import LowLevelDesign.DesignSplitwise.Expense.ExpenseSplitType;
+import LowLevelDesign.DesignSplitwise.Expense.Split.Split;
+import LowLevelDesign.DesignSplitwise.User.User;
+import LowLevelDesign.DesignSplitwise.User.UserController;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append only log of expenses, so balances survive a restart without keeping every Expense in memory.
+ * A record is [length][crc] followed by the group id, expense id, description, payer, split type, total cents
+ * and the user and cents of every split; strings are UTF-8 and numbers are varints, so a typical expense takes
+ * a few dozen bytes. Records hold the shares already split into cents, so replaying them gives exactly the same
+ * balances whatever ExpenseSplit would do today.
+ *
+ * Every snapshotEveryBytes of log, the balances of the Ledger and the totals of every UserExpenseBalanceSheet are
+ * written to a snapshot file together with the log position (lsn) they reflect, the log moves on to a new segment
+ * file and the segments before the snapshot are deleted. Opening the journal loads the snapshot and replays only
+ * the records after it, so a restart costs the size of the balances plus the recent expenses, not the whole history.
+ *
+ * A record is handed to the OS once appendThenApply returns; sync forces the log to disk.
+ * Balances only add up, so replay order does not matter, but a snapshot must not see an expense half applied:
+ * appending and applying run under the read lock, the snapshot takes the write lock.
+ */
+public class ExpenseJournal implements AutoCloseable {
+
+    static final int HEADER_BYTES = 2 * Integer.BYTES;
+    static final int SNAPSHOT_MAGIC = 0x53575353;
+    static final String SNAPSHOT_FILE = "balances.bin";
+    static final int REPLAY_BUFFER_BYTES = 1 << 20;
+
+    final Path directory;
+    final Ledger ledger;
+    final UserController userController;
+    final BalanceSheetController balanceSheetController;
+    final long snapshotEveryBytes;
+
+    //guards channel and the lsns
+    final Object lock = new Object();
+    FileChannel channel;
+    long appendedLsn;
+    long snapshotLsn;
+    boolean closed;
+    IOException failure;
+
+    final ReentrantReadWriteLock applyLock = new ReentrantReadWriteLock();
+    final Object snapshotLock = new Object();
+    final AtomicBoolean snapshotting = new AtomicBoolean();
+    int snapshotsTaken;
+    long replayedRecords;
+
+    /**
+     * Opens the journal in directory, creating it if needed, and brings the empty ledger and the balance sheets
+     * of the users back to the state of the log. Users found only in the log are added to userController.
+     */
+    public static ExpenseJournal open(Path directory, Ledger ledger, UserController userController,
+                                      long snapshotEveryBytes) throws IOException {
+        Files.createDirectories(directory);
+        ExpenseJournal journal = new ExpenseJournal(directory, ledger, userController, snapshotEveryBytes);
+        journal.recover();
+        return journal;
+    }
+
+    private ExpenseJournal(Path directory, Ledger ledger, UserController userController, long snapshotEveryBytes) {
+        if (snapshotEveryBytes <= 0) {
+            throw new IllegalArgumentException("snapshotEveryBytes must be positive");
+        }
+        this.directory = directory;
+        this.ledger = ledger;
+        this.userController = userController;
+        this.balanceSheetController = new BalanceSheetController(ledger);
+        this.snapshotEveryBytes = snapshotEveryBytes;
+    }
+
+    public Ledger getLedger() {
+        return ledger;
+    }
+
+    //logs an expense whose splits have their amountOweCents, then runs apply, which adds it to the balances.
+    //Its users are registered with the userController, whose sheets the snapshot saves
+    public void appendThenApply(String groupId, String expenseId, String description, User paidByUser,
+                                ExpenseSplitType splitType, long totalCents, List<Split> splits, Runnable apply) {
+
+        register(paidByUser);
+        for (Split split : splits) {
+            register(split.getUser());
+        }
+        ByteBuffer record = encode(groupId, expenseId, description, paidByUser, splitType, totalCents, splits);
+        long lsn;
+        applyLock.readLock().lock();
+        try {
+            synchronized (lock) {
+                checkWritable();
+                try {
+                    while (record.hasRemaining()) {
+                        channel.write(record);
+                    }
+                } catch (IOException e) {
+                    failure = e;
+                    throw new UncheckedIOException("ExpenseJournal write failed", e);
+                }
+                appendedLsn += record.limit();
+                lsn = appendedLsn;
+            }
+            apply.run();
+        } finally {
+            applyLock.readLock().unlock();
+        }
+        //whoever crosses the threshold first takes the snapshot, the others go on
+        if (lsn - snapshotLsn() >= snapshotEveryBytes && snapshotting.compareAndSet(false, true)) {
+            try {
+                snapshot();
+            } catch (IOException e) {
+                throw new UncheckedIOException("ExpenseJournal snapshot failed", e);
+            } finally {
+                snapshotting.set(false);
+            }
+        }
+    }
+
+    public void sync() throws IOException {
+        synchronized (lock) {
+            checkWritable();
+            channel.force(false);
+        }
+    }
+
+    public int snapshotsTaken() {
+        synchronized (snapshotLock) {
+            return snapshotsTaken;
+        }
+    }
+
+    //records replayed by open, the ones after the snapshot
+    public long replayedRecords() {
+        return replayedRecords;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes the balances and the lsn they reflect, then starts a new segment and deletes the segments
+     * the snapshot made unnecessary.
+     */
+    public void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            long lsn;
+            ByteBuffer image;
+            applyLock.writeLock().lock();
+            try {
+                synchronized (lock) {
+                    checkWritable();
+                    lsn = appendedLsn;
+                }
+                image = snapshotImage(lsn);
+            } finally {
+                applyLock.writeLock().unlock();
+            }
+
+            Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+            try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (image.hasRemaining()) {
+                    file.write(image);
+                }
+                file.force(true);
+            }
+
+            synchronized (lock) {
+                checkWritable();
+                //the log must reach lsn before the snapshot replaces its start
+                channel.force(false);
+                Files.move(temporary, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+                channel.close();
+                channel = openSegment(appendedLsn);
+                snapshotLsn = lsn;
+                List<Long> starts = segmentStarts();
+                for (int i = 0; i + 1 < starts.size(); i++) {
+                    if (starts.get(i + 1) <= lsn) {
+                        Files.deleteIfExists(segmentPath(starts.get(i)));
+                    }
+                }
+            }
+            snapshotsTaken++;
+        }
+    }
+
+    //[magic][lsn][user count][user id, 4 sheet totals]...[pair count][user, other user, cents]...[crc]
+    private ByteBuffer snapshotImage(long lsn) {
+        List<String> userIds = ledger.getUserIds();
+        ByteArrayOutputStream pairs = new ByteArrayOutputStream();
+        long[] pairCount = new long[1];
+        ledger.forEachBalance((user, otherUser, cents) -> {
+            writeVarLong(pairs, user);
+            writeVarLong(pairs, otherUser);
+            writeVarLong(pairs, zigZag(cents));
+            pairCount[0]++;
+        });
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarLong(out, userIds.size());
+        for (String userId : userIds) {
+            writeString(out, userId);
+            User user = userController.getUser(userId);
+            UserExpenseBalanceSheet sheet = user == null ? new UserExpenseBalanceSheet() : user.getUserExpenseBalanceSheet();
+            writeVarLong(out, zigZag(sheet.getTotalYourExpenseCents()));
+            writeVarLong(out, zigZag(sheet.getTotalPaymentCents()));
+            writeVarLong(out, zigZag(sheet.getTotalYouOweCents()));
+            writeVarLong(out, zigZag(sheet.getTotalYouGetBackCents()));
+        }
+        writeVarLong(out, pairCount[0]);
+
+        ByteBuffer image = ByteBuffer.allocate(Integer.BYTES + Long.BYTES + out.size() + pairs.size() + Long.BYTES);
+        image.putInt(SNAPSHOT_MAGIC);
+        image.putLong(lsn);
+        image.put(out.toByteArray());
+        image.put(pairs.toByteArray());
+        CRC32 checksum = new CRC32();
+        checksum.update(image.array(), 0, image.position());
+        image.putLong(checksum.getValue());
+        image.flip();
+        return image;
+    }
+
+    private static ByteBuffer encode(String groupId, String expenseId, String description, User paidByUser,
+                                     ExpenseSplitType splitType, long totalCents, List<Split> splits) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(64);
+        writeString(body, groupId == null ? "" : groupId);
+        writeString(body, expenseId);
+        writeString(body, description == null ? "" : description);
+        writeString(body, paidByUser.getUserId());
+        body.write(splitType.ordinal());
+        writeVarLong(body, zigZag(totalCents));
+        writeVarLong(body, splits.size());
+        for (Split split : splits) {
+            writeString(body, split.getUser().getUserId());
+            writeVarLong(body, zigZag(split.getAmountOweCents()));
+        }
+        byte[] bytes = body.toByteArray();
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + bytes.length);
+        record.putInt(bytes.length);
+        record.putInt((int) checksum.getValue());
+        record.put(bytes);
+        record.flip();
+        return record;
+    }
+
+    private void recover() throws IOException {
+        long lsn = loadSnapshot();
+        snapshotLsn = lsn;
+        List<Long> starts = segmentStarts();
+        long end = lsn;
+        for (int i = 0; i < starts.size(); i++) {
+            long start = starts.get(i);
+            long next = i + 1 < starts.size() ? starts.get(i + 1) : Long.MAX_VALUE;
+            if (next <= lsn) {
+                continue;
+            }
+            long segmentEnd = replaySegment(start, Math.max(start, lsn));
+            end = Math.max(end, segmentEnd);
+            if (segmentEnd < next && next != Long.MAX_VALUE) {
+                //torn write inside this segment, nothing after it can be trusted
+                for (int j = i + 1; j < starts.size(); j++) {
+                    Files.deleteIfExists(segmentPath(starts.get(j)));
+                }
+                starts = starts.subList(0, i + 1);
+                break;
+            }
+        }
+        appendedLsn = end;
+        if (starts.isEmpty() || starts.get(starts.size() - 1) > end) {
+            channel = openSegment(end);
+        } else {
+            long start = starts.get(starts.size() - 1);
+            channel = FileChannel.open(segmentPath(start), StandardOpenOption.WRITE);
+            //cut off a torn record at the end, new records go right after the last good one
+            channel.truncate(end - start);
+            channel.position(end - start);
+        }
+    }
+
+    //returns the lsn the snapshot reflects, 0 without a snapshot
+    private long loadSnapshot() throws IOException {
+        Path path = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        ByteBuffer image = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (image.limit() < Integer.BYTES + 2 * Long.BYTES || image.getInt(0) != SNAPSHOT_MAGIC) {
+            throw new IOException("Corrupt snapshot " + path);
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(image.array(), 0, image.limit() - Long.BYTES);
+        if (image.getLong(image.limit() - Long.BYTES) != checksum.getValue()) {
+            throw new IOException("Corrupt snapshot " + path);
+        }
+        image.getInt();
+        long lsn = image.getLong();
+        int userCount = (int) readVarLong(image);
+        String[] userIds = new String[userCount];
+        for (int i = 0; i < userCount; i++) {
+            userIds[i] = readString(image);
+            UserExpenseBalanceSheet sheet = userOf(userIds[i]).getUserExpenseBalanceSheet();
+            sheet.setTotalYourExpenseCents(unZigZag(readVarLong(image)));
+            sheet.setTotalPaymentCents(unZigZag(readVarLong(image)));
+            sheet.setTotalYouOweCents(unZigZag(readVarLong(image)));
+            sheet.setTotalYouGetBackCents(unZigZag(readVarLong(image)));
+            //same index order as before the restart
+            ledger.stripeOf(userIds[i]);
+        }
+        long pairCount = readVarLong(image);
+        for (long p = 0; p < pairCount; p++) {
+            String user = userIds[(int) readVarLong(image)];
+            String otherUser = userIds[(int) readVarLong(image)];
+            long cents = unZigZag(readVarLong(image));
+            int[] stripes = {ledger.stripeOf(user), ledger.stripeOf(otherUser)};
+            if (stripes[0] > stripes[1]) {
+                stripes = new int[]{stripes[1], stripes[0]};
+            } else if (stripes[0] == stripes[1]) {
+                stripes = new int[]{stripes[0]};
+            }
+            ledger.lockStripes(stripes);
+            try {
+                ledger.record(user, otherUser, cents);
+            } finally {
+                ledger.unlockStripes(stripes);
+            }
+        }
+        return lsn;
+    }
+
+    //applies the records of a segment from lsn from on, returns the lsn right after the last good record.
+    //Records are streamed through one buffer, a segment can be any size (appends go on while a snapshot runs)
+    private long replaySegment(long start, long from) throws IOException {
+        try (FileChannel file = FileChannel.open(segmentPath(start), StandardOpenOption.READ)) {
+            long size = file.size();
+            ByteBuffer buffer = ByteBuffer.allocate(REPLAY_BUFFER_BYTES);
+            buffer.flip();
+            CRC32 checksum = new CRC32();
+            long offset = 0;
+            while (fill(file, buffer, HEADER_BYTES)) {
+                int length = buffer.getInt(buffer.position());
+                if (length <= 0 || length > size - offset - HEADER_BYTES) {
+                    break;
+                }
+                if (buffer.capacity() < HEADER_BYTES + length) {
+                    ByteBuffer grown = ByteBuffer.allocate(HEADER_BYTES + length);
+                    grown.put(buffer);
+                    grown.flip();
+                    buffer = grown;
+                }
+                if (!fill(file, buffer, HEADER_BYTES + length)) {
+                    break;
+                }
+                int at = buffer.position();
+                checksum.reset();
+                checksum.update(buffer.array(), at + HEADER_BYTES, length);
+                if ((int) checksum.getValue() != buffer.getInt(at + Integer.BYTES)) {
+                    break;
+                }
+                if (start + offset >= from) {
+                    replayRecord(buffer.slice(at + HEADER_BYTES, length));
+                    replayedRecords++;
+                }
+                buffer.position(at + HEADER_BYTES + length);
+                offset += HEADER_BYTES + length;
+            }
+            return start + offset;
+        }
+    }
+
+    //makes at least needed bytes readable from the buffer position on, false when the file ends first
+    private static boolean fill(FileChannel file, ByteBuffer buffer, int needed) throws IOException {
+        if (buffer.remaining() >= needed) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < needed && file.read(buffer) >= 0) {
+            //keep reading, a read may return less than asked
+        }
+        buffer.flip();
+        return buffer.remaining() >= needed;
+    }
+
+    private void replayRecord(ByteBuffer body) {
+        readString(body);
+        readString(body);
+        readString(body);
+        User paidByUser = userOf(readString(body));
+        body.get();
+        long totalCents = unZigZag(readVarLong(body));
+        int splitCount = (int) readVarLong(body);
+        List<Split> splits = new ArrayList<>(splitCount);
+        for (int i = 0; i < splitCount; i++) {
+            Split split = new Split(userOf(readString(body)), 0);
+            split.setAmountOweCents(unZigZag(readVarLong(body)));
+            splits.add(split);
+        }
+        balanceSheetController.updateUserExpenseBalanceSheet(paidByUser, splits, totalCents);
+    }
+
+    //a user updated through another object than the registered one would lose its totals in the snapshot
+    private void register(User user) {
+        User registered;
+        synchronized (userController) {
+            registered = userController.getUser(user.getUserId());
+            if (registered == null) {
+                userController.addUser(user);
+                return;
+            }
+        }
+        if (registered != user) {
+            throw new IllegalArgumentException("User " + user.getUserId() + " is not the one registered with the ExpenseJournal");
+        }
+    }
+
+    private User userOf(String userId) {
+        User user = userController.getUser(userId);
+        if (user == null) {
+            user = new User(userId, userId);
+            userController.addUser(user);
+        }
+        return user;
+    }
+
+    private long snapshotLsn() {
+        synchronized (lock) {
+            return snapshotLsn;
+        }
+    }
+
+    private FileChannel openSegment(long start) throws IOException {
+        return FileChannel.open(segmentPath(start), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    private Path segmentPath(long start) {
+        return directory.resolve(String.format("expenses-%020d.log", start));
+    }
+
+    private List<Long> segmentStarts() throws IOException {
+        List<Long> starts = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "expenses-*.log")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                starts.add(Long.parseLong(name.substring("expenses-".length(), name.length() - ".log".length())));
+            }
+        }
+        Collections.sort(starts);
+        return starts;
+    }
+
+    private void checkWritable() {
+        if (failure != null) {
+            throw new UncheckedIOException("ExpenseJournal write failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("ExpenseJournal is closed");
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = (int) readVarLong(in);
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    //7 bits per byte, the high bit says another byte follows
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    //small negative amounts stay small too
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public static void main(String args[]) throws Exception {
+
+        Path directory = Files.createTempDirectory("expense-journal");
+        int userCount = 10_000;
+        int expenseCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long snapshotEveryBytes = 16 << 20;
+
+        //a year of expenses, 4 users each
+        UserController users = new UserController();
+        for (int u = 0; u < userCount; u++) {
+            users.addUser(new User("U" + u, "User" + u));
+        }
+        Ledger ledger = new Ledger();
+        long start = System.nanoTime();
+        try (ExpenseJournal journal = open(directory, ledger, users, snapshotEveryBytes)) {
+            BalanceSheetController balances = new BalanceSheetController(ledger);
+            Random random = new Random(11);
+            for (int e = 0; e < expenseCount; e++) {
+                List<Split> splits = new ArrayList<>();
+                for (int s = 0; s < 4; s++) {
+                    Split split = new Split(users.getUser("U" + random.nextInt(userCount)), 0);
+                    split.setAmountOweCents(2_500);
+                    splits.add(split);
+                }
+                User paidBy = splits.get(0).getUser();
+                journal.appendThenApply("G" + e % 100, "E" + e, "dinner", paidBy, ExpenseSplitType.EQUAL, 10_000,
+                        splits, () -> balances.updateUserExpenseBalanceSheet(paidBy, splits, 10_000));
+            }
+            System.out.printf("%d expenses logged in %d ms, snapshots taken: %d%n", expenseCount,
+                    (System.nanoTime() - start) / 1_000_000, journal.snapshotsTaken());
+        }
+        long logBytes = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                logBytes += Files.size(file);
+            }
+        }
+        System.out.println("bytes on disk after compaction: " + logBytes);
+
+        //a fresh process: new users and ledger, the balances come back from the snapshot and the log tail
+        UserController restoredUsers = new UserController();
+        for (int u = 0; u < userCount; u++) {
+            restoredUsers.addUser(new User("U" + u, "User" + u));
+        }
+        Ledger restored = new Ledger();
+        start = System.nanoTime();
+        try (ExpenseJournal journal = open(directory, restored, restoredUsers, snapshotEveryBytes)) {
+            System.out.printf("restart in %d ms, records replayed: %d%n",
+                    (System.nanoTime() - start) / 1_000_000, journal.replayedRecords());
+        }
+        List<String> userIds = new ArrayList<>();
+        for (int u = 0; u < userCount; u++) {
+            userIds.add("U" + u);
+        }
+        long[] before = ledger.netPositions(userIds);
+        long[] after = restored.netPositions(userIds);
+        long paidBefore = 0;
+        long paidAfter = 0;
+        for (int u = 0; u < userCount; u++) {
+            paidBefore += users.getUser("U" + u).getUserExpenseBalanceSheet().getTotalPaymentCents();
+            paidAfter += restoredUsers.getUser("U" + u).getUserExpenseBalanceSheet().getTotalPaymentCents();
+        }
+        System.out.println("same net positions: " + Arrays.equals(before, after)
+                + ", same total paid: " + (paidBefore == paidAfter));
+    }
+}
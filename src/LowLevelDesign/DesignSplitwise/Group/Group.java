@@ -2,12 +2,16 @@ package LowLevelDesign.DesignSplitwise.Group;
 
 import LowLevelDesign.DesignSplitwise.Expense.Expense;
 import LowLevelDesign.DesignSplitwise.Expense.ExpenseController;
+import LowLevelDesign.DesignSplitwise.Expense.ExpenseIngestionPipeline;
 import LowLevelDesign.DesignSplitwise.Expense.ExpenseSplitType;
 import LowLevelDesign.DesignSplitwise.Expense.Split.Split;
+import LowLevelDesign.DesignSplitwise.Ledger;
 import LowLevelDesign.DesignSplitwise.User.User;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class Group {
 
@@ -15,19 +19,29 @@ public class Group {
     String groupName;
     List<User> groupMembers;
 
+    //without a journal the group keeps its expenses in memory, with one they are in the log
     List<Expense> expenseList;
 
     ExpenseController expenseController;
+    //keeps the membership index of the controller up to date
+    GroupController groupController;
 
-    Group(){
+    Group(Ledger ledger, GroupController groupController){
         groupMembers = new ArrayList<>();
-        expenseList = new ArrayList<>();
-        expenseController = new ExpenseController();
+        expenseList = Collections.synchronizedList(new ArrayList<>());
+        expenseController = groupController.journal == null
+                ? new ExpenseController(ledger) : new ExpenseController(groupController.journal);
+        this.groupController = groupController;
     }
 
     //add member to group
     public void addMember(User member){
         groupMembers.add(member);
+        groupController.memberAdded(this, member);
+    }
+
+    public List<User> getGroupMembers() {
+        return groupMembers;
     }
 
     public String getGroupId() {
@@ -45,8 +59,19 @@ public class Group {
     public Expense createExpense(String expenseId, String description, double expenseAmount,
                                  List<Split> splitDetails, ExpenseSplitType splitType, User paidByUser) {
 
-        Expense expense = expenseController.createExpense(expenseId, description, expenseAmount, splitDetails, splitType, paidByUser);
-        expenseList.add(expense);
+        Expense expense = expenseController.createExpense(groupId, expenseId, description, expenseAmount, splitDetails, splitType, paidByUser);
+        if (groupController.journal == null) {
+            expenseList.add(expense);
+        }
         return expense;
     }
+
+    //same as createExpense, run by the pipeline; an expense id is added to the group once
+    public CompletableFuture<Expense> submitExpense(ExpenseIngestionPipeline pipeline, String expenseId, String description,
+                                                    double expenseAmount, List<Split> splitDetails,
+                                                    ExpenseSplitType splitType, User paidByUser) {
+
+        return pipeline.submit(groupId, expenseId, description, expenseAmount, splitDetails, splitType, paidByUser,
+                groupController.journal == null ? expenseList::add : null);
+    }
 }
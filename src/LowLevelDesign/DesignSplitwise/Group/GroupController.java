@@ -1,23 +1,50 @@
 package LowLevelDesign.DesignSplitwise.Group;
 
+import LowLevelDesign.DesignSplitwise.ExpenseJournal;
+import LowLevelDesign.DesignSplitwise.Ledger;
 import LowLevelDesign.DesignSplitwise.User.User;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class GroupController {
 
     List<Group> groupList;
+    //groupId -> group, the first group created under an id wins
+    Map<String, Group> groupIdVsGroup;
+    //userId -> groups the user is a member of, kept up to date by Group.addMember
+    Map<String, Set<Group>> userIdVsGroups;
+    //the expenses of all groups go to one ledger
+    Ledger ledger;
+    //null when expenses are not logged
+    ExpenseJournal journal;
 
     public GroupController(){
+        this(new Ledger());
+    }
+
+    public GroupController(Ledger ledger){
         groupList = new ArrayList<>();
+        groupIdVsGroup = new ConcurrentHashMap<>();
+        userIdVsGroups = new ConcurrentHashMap<>();
+        this.ledger = ledger;
+    }
+
+    //the expenses of all groups are logged to journal and applied to its ledger
+    public GroupController(ExpenseJournal journal){
+        this(journal.getLedger());
+        this.journal = journal;
     }
 
     //create group
-    public void createNewGroup(String groupId, String groupName, User createdByUser) {
+    public synchronized void createNewGroup(String groupId, String groupName, User createdByUser) {
 
         //create a new group
-        Group group = new Group();
+        Group group = new Group(ledger, this);
         group.setGroupId(groupId);
         group.setGroupName(groupName);
 
@@ -26,17 +53,19 @@ public class GroupController {
 
         //add the group in the list of overall groups
         groupList.add(group);
+        groupIdVsGroup.putIfAbsent(groupId, group);
     }
 
     public Group getGroup(String groupId){
+        return groupIdVsGroup.get(groupId);
+    }
 
-        for(Group group: groupList) {
-
-            if(group.getGroupId().equals(groupId)){
-                return group;
-            }
-        }
-        return null;
+    public List<Group> getGroupsOfUser(String userId){
+        Set<Group> groups = userIdVsGroups.get(userId);
+        return groups == null ? Collections.emptyList() : new ArrayList<>(groups);
     }
 
+    void memberAdded(Group group, User member){
+        userIdVsGroups.computeIfAbsent(member.getUserId(), id -> ConcurrentHashMap.newKeySet()).add(group);
+    }
 }
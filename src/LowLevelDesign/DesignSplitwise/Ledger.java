@@ -0,0 +1,298 @@
+package LowLevelDesign.DesignSplitwise;
+
+import LowLevelDesign.DesignDataStructures.IntIntMap;
+import LowLevelDesign.DesignDataStructures.IntObjMap;
+import LowLevelDesign.DesignDataStructures.LongLongMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Who owes whom, in cents, so balances stay exact however many expenses are added.
+ * Every user gets a dense index on first use; the balance of a pair of users is one entry of a LongLongMap,
+ * keyed by both indexes packed into a long (lower index in the high half) and holding what the higher index user
+ * owes the lower one, negative when it goes the other way. Every user also lists its counterparties, the users it
+ * has a pair with, so reading one user or one group only touches their own pairs.
+ * A pair costs a 16 byte slot in a map that is 0.375 to 0.75 full (21 to 43 bytes) plus a 4 byte counterparty entry
+ * on both sides in lists up to half empty (8 to 16 bytes): about 30 to 60 bytes, instead of two Balance objects.
+ *
+ * Users are spread over lock stripes by index. A pair lives in the map of its lower user's stripe, so whoever holds
+ * the stripes of both users may change it; the same stripe also guards the user's counterparties
+ * and UserExpenseBalanceSheet.
+ * Writers take the stripes of all users of an expense through lockStripes, always in ascending order,
+ * so two expenses never wait on each other in a cycle. Shared by everything that records expenses of the same users.
+ */
+public class Ledger {
+
+    public static final int DEFAULT_STRIPES = 64;
+
+    final Map<String, Integer> userIndex = new ConcurrentHashMap<>();
+    final Map<Integer, String> userIds = new ConcurrentHashMap<>();
+    //per stripe: its lock, the pairs whose lower user is in it, and the counterparties of its users
+    final ReentrantLock[] stripeLocks;
+    final LongLongMap[] pairBalances;
+    final IntObjMap<Counterparties>[] counterparties;
+    final int stripeMask;
+
+    public Ledger() {
+        this(DEFAULT_STRIPES);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Ledger(int stripes) {
+        if (stripes <= 0 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("stripes must be a power of two: " + stripes);
+        }
+        stripeLocks = new ReentrantLock[stripes];
+        pairBalances = new LongLongMap[stripes];
+        counterparties = (IntObjMap<Counterparties>[]) new IntObjMap<?>[stripes];
+        for (int i = 0; i < stripes; i++) {
+            stripeLocks[i] = new ReentrantLock();
+            pairBalances[i] = new LongLongMap();
+            counterparties[i] = new IntObjMap<>();
+        }
+        stripeMask = stripes - 1;
+    }
+
+    public int stripeOf(String userId) {
+        return indexOf(userId) & stripeMask;
+    }
+
+    //stripes must be sorted ascending without duplicates
+    public void lockStripes(int[] stripes) {
+        for (int stripe : stripes) {
+            stripeLocks[stripe].lock();
+        }
+    }
+
+    public void unlockStripes(int[] stripes) {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripeLocks[stripes[i]].unlock();
+        }
+    }
+
+    //oweUserId now owes paidByUserId amountCents more; the caller holds the stripes of both users
+    public void record(String paidByUserId, String oweUserId, long amountCents) {
+        int paidBy = indexOf(paidByUserId);
+        int owe = indexOf(oweUserId);
+        if (paidBy == owe) {
+            return;
+        }
+        int low = Math.min(paidBy, owe);
+        int high = Math.max(paidBy, owe);
+        LongLongMap pairs = pairBalances[low & stripeMask];
+        int pairCount = pairs.size();
+        pairs.addTo(pair(low, high), low == paidBy ? amountCents : -amountCents);
+        if (pairs.size() != pairCount) {
+            //a new pair, pairs are never removed so neither are counterparties
+            counterpartiesOf(low).add(high);
+            counterpartiesOf(high).add(low);
+        }
+    }
+
+    //what userId gets back from otherUserId, negative when userId owes
+    public long getBalanceCents(String userId, String otherUserId) {
+        Integer user = userIndex.get(userId);
+        Integer other = userIndex.get(otherUserId);
+        if (user == null || other == null || user.equals(other)) {
+            return 0;
+        }
+        int low = Math.min(user, other);
+        ReentrantLock lock = stripeLocks[low & stripeMask];
+        lock.lock();
+        try {
+            long cents = pairBalances[low & stripeMask].get(pair(low, Math.max(user, other)));
+            return user == low ? cents : -cents;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //every user userId has a non-zero balance with, and that balance as in getBalanceCents; reads only userId's pairs
+    public Map<String, Long> getBalancesOf(String userId) {
+        Map<String, Long> balances = new HashMap<>();
+        Integer user = userIndex.get(userId);
+        if (user == null) {
+            return balances;
+        }
+        int[] others;
+        ReentrantLock own = stripeLocks[user & stripeMask];
+        own.lock();
+        try {
+            Counterparties list = counterparties[user & stripeMask].get(user);
+            others = list == null ? new int[0] : Arrays.copyOf(list.users, list.count);
+        } finally {
+            own.unlock();
+        }
+        int[] stripes = new int[others.length];
+        for (int i = 0; i < others.length; i++) {
+            stripes[i] = Math.min(user, others[i]) & stripeMask;
+        }
+        stripes = distinctSorted(stripes);
+        lockStripes(stripes);
+        try {
+            for (int other : others) {
+                int low = Math.min(user, other);
+                long cents = pairBalances[low & stripeMask].get(pair(low, Math.max(user, other)));
+                if (cents != 0) {
+                    balances.put(userIds.get(other), user == low ? cents : -cents);
+                }
+            }
+        } finally {
+            unlockStripes(stripes);
+        }
+        return balances;
+    }
+
+    /**
+     * Net position in cents of every member: what they get back minus what they owe, counting only balances
+     * with other members, so the positions of a group add up to 0. Walks the counterparties of the members only,
+     * with the stripes of the members locked so no expense among them is seen half applied.
+     */
+    public long[] netPositions(List<String> memberIds) {
+        //user index -> position in memberIds
+        IntIntMap memberPosition = new IntIntMap(memberIds.size(), 0.5f, -1);
+        int[] members = new int[memberIds.size()];
+        int[] stripes = new int[memberIds.size()];
+        for (int i = 0; i < memberIds.size(); i++) {
+            Integer user = userIndex.get(memberIds.get(i));
+            members[i] = user == null ? -1 : user;
+            if (user != null) {
+                memberPosition.put(user, i);
+                stripes[i] = user & stripeMask;
+            }
+        }
+        long[] netCents = new long[memberIds.size()];
+        stripes = distinctSorted(stripes);
+        lockStripes(stripes);
+        try {
+            for (int i = 0; i < members.length; i++) {
+                int user = members[i];
+                //unknown users and repeated ids count once
+                if (user < 0 || memberPosition.get(user) != i) {
+                    continue;
+                }
+                Counterparties list = counterparties[user & stripeMask].get(user);
+                for (int c = 0; list != null && c < list.count; c++) {
+                    int other = list.users[c];
+                    int position = other > user ? memberPosition.get(other) : -1;
+                    //every pair once, from its lower user, whose stripe holds it
+                    if (position >= 0) {
+                        long cents = pairBalances[user & stripeMask].get(pair(user, other));
+                        netCents[i] += cents;
+                        netCents[position] -= cents;
+                    }
+                }
+            }
+        } finally {
+            unlockStripes(stripes);
+        }
+        return netCents;
+    }
+
+    //ids of all users the ledger has seen, a user's position is its index in the ledger
+    public List<String> getUserIds() {
+        synchronized (userIds) {
+            List<String> ids = new ArrayList<>(userIds.size());
+            for (int i = 0; i < userIds.size(); i++) {
+                ids.add(userIds.get(i));
+            }
+            return ids;
+        }
+    }
+
+    //every non-zero pair balance, by user index as in getUserIds: otherUser owes user cents; locks all stripes
+    public void forEachBalance(BalanceConsumer consumer) {
+        int[] allStripes = new int[stripeLocks.length];
+        for (int i = 0; i < allStripes.length; i++) {
+            allStripes[i] = i;
+        }
+        lockStripes(allStripes);
+        try {
+            for (LongLongMap pairs : pairBalances) {
+                pairs.forEach((key, cents) -> {
+                    if (cents != 0) {
+                        consumer.accept((int) (key >>> 32), (int) key, cents);
+                    }
+                });
+            }
+        } finally {
+            unlockStripes(allStripes);
+        }
+    }
+
+    public interface BalanceConsumer {
+        void accept(int user, int otherUser, long cents);
+    }
+
+    //rounds half away from zero on both sides, so an amount and its negation give opposite cents
+    public static long toCents(double amount) {
+        long cents = Math.round(Math.abs(amount) * 100);
+        return amount < 0 ? -cents : cents;
+    }
+
+    public static String format(long cents) {
+        long abs = Math.abs(cents);
+        return (cents < 0 ? "-" : "") + abs / 100 + "." + (abs % 100 < 10 ? "0" : "") + abs % 100;
+    }
+
+    //caller holds the user's stripe
+    private Counterparties counterpartiesOf(int user) {
+        IntObjMap<Counterparties> lists = counterparties[user & stripeMask];
+        Counterparties list = lists.get(user);
+        if (list == null) {
+            list = new Counterparties();
+            lists.put(user, list);
+        }
+        return list;
+    }
+
+    private static int[] distinctSorted(int[] stripes) {
+        Arrays.sort(stripes);
+        int distinct = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            if (i == 0 || stripes[i] != stripes[i - 1]) {
+                stripes[distinct++] = stripes[i];
+            }
+        }
+        return Arrays.copyOf(stripes, distinct);
+    }
+
+    private int indexOf(String userId) {
+        Integer index = userIndex.get(userId);
+        if (index != null) {
+            return index;
+        }
+        synchronized (userIds) {
+            //the reverse entry is in place before the index can be seen
+            return userIndex.computeIfAbsent(userId, id -> {
+                int next = userIds.size();
+                userIds.put(next, id);
+                return next;
+            });
+        }
+    }
+
+    private static long pair(int low, int high) {
+        return ((long) low << 32) | (high & 0xFFFFFFFFL);
+    }
+
+    //users one user has a pair with, in the order the pairs appeared
+    static final class Counterparties {
+
+        int[] users = new int[4];
+        int count;
+
+        void add(int user) {
+            if (count == users.length) {
+                users = Arrays.copyOf(users, count * 2);
+            }
+            users[count++] = user;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package LowLevelDesign.DesignSplitwise;
+
+import LowLevelDesign.DesignSplitwise.User.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Settles up a group with few transfers instead of one per pairwise Balance.
+ * Every member's net position (what they get back minus what they owe, counting only other members) is taken
+ * in cents from the Ledger. Then the biggest debtor pays the biggest creditor, again and again,
+ * using two max-heaps: O(n log n) and at most n - 1 transfers.
+ * Up to exactLimit members with a non-zero position, the fewest transfers possible are found instead: that is n minus
+ * the most zero-sum groups the members can be split into, found by a DP over the subsets (O(2^n * n)).
+ */
+public class SettlementEngine {
+
+    public static final int DEFAULT_EXACT_LIMIT = 16;
+
+    int exactLimit;
+
+    public SettlementEngine() {
+        this(DEFAULT_EXACT_LIMIT);
+    }
+
+    //0 always uses the greedy matcher
+    public SettlementEngine(int exactLimit) {
+        if (exactLimit < 0 || exactLimit > 24) {
+            throw new IllegalArgumentException("exactLimit must be between 0 and 24");
+        }
+        this.exactLimit = exactLimit;
+    }
+
+    public List<Transfer> settle(Ledger ledger, List<User> members) {
+        String[] userIds = new String[members.size()];
+        for (int i = 0; i < userIds.length; i++) {
+            userIds[i] = members.get(i).getUserId();
+        }
+        return settle(userIds, ledger.netPositions(Arrays.asList(userIds)));
+    }
+
+    //netCents[i] > 0: userIds[i] gets money back; the positions must add up to 0
+    public List<Transfer> settle(String[] userIds, long[] netCents) {
+
+        long total = 0;
+        int nonZero = 0;
+        for (long net : netCents) {
+            total += net;
+            if (net != 0) {
+                nonZero++;
+            }
+        }
+        if (total != 0) {
+            throw new IllegalArgumentException("Net positions add up to " + total + " cents instead of 0");
+        }
+        int[] members = new int[nonZero];
+        for (int i = 0, j = 0; i < netCents.length; i++) {
+            if (netCents[i] != 0) {
+                members[j++] = i;
+            }
+        }
+        List<Transfer> transfers = new ArrayList<>();
+        if (nonZero <= exactLimit) {
+            settleExact(userIds, netCents, members, transfers);
+        } else {
+            settleGreedy(userIds, netCents, members, transfers);
+        }
+        return transfers;
+    }
+
+    private static void settleGreedy(String[] userIds, long[] netCents, int[] members, List<Transfer> transfers) {
+
+        long[] remaining = netCents.clone();
+        //largest amount first: creditors by what they get back, debtors by what they owe
+        PriorityQueue<Integer> creditors = new PriorityQueue<>(Math.max(1, members.length),
+                (a, b) -> Long.compare(remaining[b], remaining[a]));
+        PriorityQueue<Integer> debtors = new PriorityQueue<>(Math.max(1, members.length),
+                (a, b) -> Long.compare(remaining[a], remaining[b]));
+        for (int member : members) {
+            (remaining[member] > 0 ? creditors : debtors).add(member);
+        }
+        while (!creditors.isEmpty() && !debtors.isEmpty()) {
+            int creditor = creditors.poll();
+            int debtor = debtors.poll();
+            long amount = Math.min(remaining[creditor], -remaining[debtor]);
+            transfers.add(new Transfer(userIds[debtor], userIds[creditor], amount));
+            remaining[creditor] -= amount;
+            remaining[debtor] += amount;
+            if (remaining[creditor] > 0) {
+                creditors.add(creditor);
+            }
+            if (remaining[debtor] < 0) {
+                debtors.add(debtor);
+            }
+        }
+    }
+
+    private static void settleExact(String[] userIds, long[] netCents, int[] members, List<Transfer> transfers) {
+
+        int n = members.length;
+        if (n == 0) {
+            return;
+        }
+        int full = (1 << n) - 1;
+        long[] sum = new long[full + 1];
+        //groups[mask]: most zero-sum groups the members of mask split into, the members left over form no group
+        int[] groups = new int[full + 1];
+        for (int mask = 1; mask <= full; mask++) {
+            int lowest = Integer.numberOfTrailingZeros(mask);
+            sum[mask] = sum[mask & (mask - 1)] + netCents[members[lowest]];
+            int best = 0;
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                best = Math.max(best, groups[mask & ~Integer.lowestOneBit(rest)]);
+            }
+            groups[mask] = best + (sum[mask] == 0 ? 1 : 0);
+        }
+
+        //peel members off the full set one by one; a zero-sum group is complete whenever the set left sums to 0
+        List<Integer> group = new ArrayList<>();
+        int mask = full;
+        while (mask != 0) {
+            int target = groups[mask] - (sum[mask] == 0 ? 1 : 0);
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                int bit = Integer.lowestOneBit(rest);
+                if (groups[mask & ~bit] == target) {
+                    group.add(members[Integer.numberOfTrailingZeros(bit)]);
+                    mask &= ~bit;
+                    break;
+                }
+            }
+            if (sum[mask] == 0) {
+                //k members summing to 0 settle among themselves with k - 1 transfers
+                int[] groupMembers = group.stream().mapToInt(Integer::intValue).toArray();
+                settleGreedy(userIds, netCents, groupMembers, transfers);
+                group.clear();
+            }
+        }
+    }
+
+    public static void main(String args[]) {
+
+        SettlementEngine engine = new SettlementEngine();
+
+        //B and F settle on their own, so 4 transfers are enough; the greedy matcher needs 5
+        String[] userIds = {"A", "B", "C", "D", "E", "F"};
+        long[] netCents = {-900, 700, -200, 500, 600, -700};
+        System.out.println("exact:  " + engine.settle(userIds, netCents));
+        System.out.println("greedy: " + new SettlementEngine(0).settle(userIds, netCents));
+
+        //a group of 100k members with random positions
+        int n = 100_000;
+        Random random = new Random(7);
+        String[] ids = new String[n];
+        long[] nets = new long[n];
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            ids[i] = "U" + i;
+            nets[i] = random.nextInt(2_000_001) - 1_000_000;
+            total += nets[i];
+        }
+        nets[n - 1] -= total;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            List<Transfer> transfers = engine.settle(ids, nets);
+            System.out.println(n + " members: " + transfers.size() + " transfers in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+    }
+}
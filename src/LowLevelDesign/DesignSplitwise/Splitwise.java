@@ -16,11 +16,15 @@ public class Splitwise {
     GroupController groupController;
 
     BalanceSheetController balanceSheetController;
+    SettlementEngine settlementEngine;
+    Ledger ledger;
 
     Splitwise(){
+        ledger = new Ledger();
         userController = new UserController();
-        groupController = new GroupController();
-        balanceSheetController = new BalanceSheetController();
+        groupController = new GroupController(ledger);
+        balanceSheetController = new BalanceSheetController(ledger);
+        settlementEngine = new SettlementEngine();
     }
 
     public void demo(){
@@ -33,25 +37,31 @@ public class Splitwise {
         group.addMember(userController.getUser("U3001"));
 
         //Step2. create an expense inside a group
+        List<User> users = userController.getUsers(List.of("U1001", "U2001", "U3001"));
         List<Split> splits = new ArrayList<>();
-        Split split1 = new Split(userController.getUser("U1001"), 300);
-        Split split2 = new Split(userController.getUser("U2001"), 300);
-        Split split3 = new Split(userController.getUser("U3001"), 300);
+        Split split1 = new Split(users.get(0), 300);
+        Split split2 = new Split(users.get(1), 300);
+        Split split3 = new Split(users.get(2), 300);
         splits.add(split1);
         splits.add(split2);
         splits.add(split3);
-        group.createExpense("Exp1001", "Breakfast", 900, splits, ExpenseSplitType.EQUAL, userController.getUser("U1001"));
+        group.createExpense("Exp1001", "Breakfast", 900, splits, ExpenseSplitType.EQUAL, users.get(0));
 
         List<Split> splits2 = new ArrayList<>();
-        Split splits2_1 = new Split(userController.getUser("U1001"), 400);
-        Split splits2_2 = new Split(userController.getUser("U2001"), 100);
+        Split splits2_1 = new Split(users.get(0), 400);
+        Split splits2_2 = new Split(users.get(1), 100);
         splits2.add(splits2_1);
         splits2.add(splits2_2);
-        group.createExpense("Exp1002", "Lunch", 500, splits2, ExpenseSplitType.UNEQUAL, userController.getUser("U2001"));
+        group.createExpense("Exp1002", "Lunch", 500, splits2, ExpenseSplitType.UNEQUAL, users.get(1));
 
         for(User user : userController.getAllUsers()) {
             balanceSheetController.showBalanceSheetOfUser(user);
         }
+
+        //Step3. settle up the group with as few transfers as possible
+        for(Transfer transfer : settlementEngine.settle(ledger, group.getGroupMembers())) {
+            System.out.println(transfer);
+        }
     }
 
     public void setupUserAndGroup(){
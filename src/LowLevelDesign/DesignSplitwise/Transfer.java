@@ -0,0 +1,32 @@
+package LowLevelDesign.DesignSplitwise;
+
+//one payment that settles debts: fromUserId pays toUserId amountCents
+public class Transfer {
+
+    String fromUserId;
+    String toUserId;
+    long amountCents;
+
+    public Transfer(String fromUserId, String toUserId, long amountCents) {
+        this.fromUserId = fromUserId;
+        this.toUserId = toUserId;
+        this.amountCents = amountCents;
+    }
+
+    public String getFromUserId() {
+        return fromUserId;
+    }
+
+    public String getToUserId() {
+        return toUserId;
+    }
+
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    @Override
+    public String toString() {
+        return fromUserId + " pays " + toUserId + " " + Ledger.format(amountCents);
+    }
+}
@@ -2,28 +2,37 @@ package LowLevelDesign.DesignSplitwise.User;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class UserController {
 
     List<User> userList;
+    //userId -> user, the first user added under an id wins, same as the scan over userList did
+    Map<String, User> userIdVsUser;
 
     public UserController(){
         userList = new ArrayList<>();
+        userIdVsUser = new ConcurrentHashMap<>();
     }
 
     //add user
-    public void addUser(User user) {
+    public synchronized void addUser(User user) {
         userList.add(user);
+        userIdVsUser.putIfAbsent(user.getUserId(), user);
     }
 
     public User getUser(String userID) {
+        return userIdVsUser.get(userID);
+    }
 
-        for (User user : userList) {
-            if (user.getUserId().equals(userID)) {
-                return user;
-            }
+    //users in the order of the ids, null for an unknown id
+    public List<User> getUsers(List<String> userIDs) {
+        List<User> users = new ArrayList<>(userIDs.size());
+        for (String userID : userIDs) {
+            users.add(userIdVsUser.get(userID));
         }
-        return null;
+        return users;
     }
 
     public List<User> getAllUsers(){
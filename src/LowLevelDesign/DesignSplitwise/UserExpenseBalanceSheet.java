@@ -1,59 +1,51 @@
 package LowLevelDesign.DesignSplitwise;
 
-import java.util.HashMap;
-import java.util.Map;
-
+//totals of one user in cents, the balances with other users are kept in the Ledger
 public class UserExpenseBalanceSheet {
 
-    Map<String, Balance> userVsBalance;
-    double totalYourExpense;
+    long totalYourExpenseCents;
 
-    double totalPayment;
+    long totalPaymentCents;
 
-    double totalYouOwe;
-    double totalYouGetBack;
+    long totalYouOweCents;
+    long totalYouGetBackCents;
 
     public UserExpenseBalanceSheet(){
 
-        userVsBalance = new HashMap<>();
-        totalYourExpense = 0;
-        totalYouOwe = 0;
-        totalYouGetBack = 0;
-    }
-
-    public Map<String, Balance> getUserVsBalance() {
-        return userVsBalance;
+        totalYourExpenseCents = 0;
+        totalYouOweCents = 0;
+        totalYouGetBackCents = 0;
     }
 
-    public double getTotalYourExpense() {
-        return totalYourExpense;
+    public long getTotalYourExpenseCents() {
+        return totalYourExpenseCents;
     }
 
-    public void setTotalYourExpense(double totalYourExpense) {
-        this.totalYourExpense = totalYourExpense;
+    public void setTotalYourExpenseCents(long totalYourExpenseCents) {
+        this.totalYourExpenseCents = totalYourExpenseCents;
     }
 
-    public double getTotalYouOwe() {
-        return totalYouOwe;
+    public long getTotalYouOweCents() {
+        return totalYouOweCents;
     }
 
-    public void setTotalYouOwe(double totalYouOwe) {
-        this.totalYouOwe = totalYouOwe;
+    public void setTotalYouOweCents(long totalYouOweCents) {
+        this.totalYouOweCents = totalYouOweCents;
     }
 
-    public double getTotalYouGetBack() {
-        return totalYouGetBack;
+    public long getTotalYouGetBackCents() {
+        return totalYouGetBackCents;
     }
 
-    public void setTotalYouGetBack(double totalYouGetBack) {
-        this.totalYouGetBack = totalYouGetBack;
+    public void setTotalYouGetBackCents(long totalYouGetBackCents) {
+        this.totalYouGetBackCents = totalYouGetBackCents;
     }
 
-    public double getTotalPayment() {
-        return totalPayment;
+    public long getTotalPaymentCents() {
+        return totalPaymentCents;
     }
 
-    public void setTotalPayment(double totalPayment) {
-        this.totalPayment = totalPayment;
+    public void setTotalPaymentCents(long totalPaymentCents) {
+        this.totalPaymentCents = totalPaymentCents;
     }
 }